@@ -0,0 +1,184 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controllers.ghosts.game.GameGhosts;
+import game.GameConfig;
+import game.core.BatchGame;
+import game.core.Game;
+import game.core._G_;
+
+/**
+ * Benchmarks of the forward model (game.core) that controllers rely on.
+ * <br/><br/>
+ * Every benchmark runs on a game that starts at the given level (levels 1, 3, 6 and 10 are the first ones played
+ * in each of the four mazes) and has then been played for the given number of ticks by a nearest-pill policy,
+ * so that the state has fewer pills, moved ghosts, etc. Queries taking node indices cycle through a fixed set of
+ * random nodes, so that they touch the whole maze rather than a few cached entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ForwardModelBenchmark {
+
+	private static final int NODES = 1 << 10;
+	private static final int LANES = 64;
+
+	@Param({"1", "3", "6", "10"})
+	public int level;
+
+	@Param({"0", "500"})
+	public int ticks;
+
+	private Game game;
+	private Game target;
+	private int[] from, to;
+	private int[] ghosts;
+	private int next;
+	private BatchGame batch, batchSource;
+	private int[] pacManDirs, ghostDirs;
+
+	@Setup
+	public void setUp() {
+		GameConfig config = new GameConfig();
+		config.seed = 0;
+		config.startingLevel = level;
+
+		GameGhosts ghosts = new GameGhosts(4);
+		_G_ g = new _G_();
+		g.newGame(config, ghosts);
+		ghosts.reset(g);
+
+		for (int i = 0; i < ticks && !g.gameOver() && g.getCurLevel() == level; ++i) {
+			int[] pills = g.getPillIndicesActive();
+			int dir = pills.length == 0 ? g.getCurPacManDir()
+			                            : g.getNextPacManDir(g.getTarget(g.getCurPacManLoc(), pills, true, Game.DM.PATH),
+			                                                 true, Game.DM.PATH);
+			g.advanceGame(dir);
+		}
+
+		game = g.copy();
+		target = game.copy();
+
+		// the ghost of each query: ghost path distances are 0 at once for a ghost in the lair, so only the others
+		int numOutside = 0;
+		int[] outside = new int[Game.NUM_GHOSTS];
+		for (int i = 0; i < Game.NUM_GHOSTS; ++i) {
+			if (!g.isInLair(i)) outside[numOutside++] = i;
+		}
+		if (numOutside == 0) throw new IllegalStateException("no ghost outside the lair");
+		ghosts = new int[NODES];
+		for (int i = 0; i < NODES; ++i) {
+			ghosts[i] = outside[i % numOutside];
+		}
+
+		Random random = new Random(0);
+		from = new int[NODES];
+		to = new int[NODES];
+		for (int i = 0; i < NODES; ++i) {
+			from[i] = random.nextInt(game.getNumberOfNodes());
+			to[i] = random.nextInt(game.getNumberOfNodes());
+		}
+
+		batchSource = new BatchGame(LANES);
+		batch = new BatchGame(LANES);
+		pacManDirs = new int[LANES];
+		ghostDirs = new int[Game.NUM_GHOSTS * LANES];
+		for (int i = 0; i < LANES; ++i) {
+			batchSource.load(i, game);
+			pacManDirs[i] = random.nextInt(4);
+		}
+		for (int i = 0; i < ghostDirs.length; ++i) {
+			ghostDirs[i] = random.nextInt(5) - 1;
+		}
+	}
+
+	private int nextPair() {
+		return next = (next + 1) & (NODES - 1);
+	}
+
+	@Benchmark
+	public Game copy() {
+		return game.copy();
+	}
+
+	@Benchmark
+	public Game copyInto() {
+		game.copyInto(target);
+		return target;
+	}
+
+	/**
+	 * Restores the state with copyInto() and advances it by one tick. The state has to be restored, as advancing it
+	 * repeatedly would play the game on, so there is no benchmark of advanceGame(int) alone; its cost is the time per
+	 * operation of this benchmark minus that of copyInto() (the scores are throughputs, so in us/op:
+	 * 1/copyIntoAndAdvance - 1/copyInto).
+	 */
+	@Benchmark
+	public Game copyIntoAndAdvance() {
+		game.copyInto(target);
+		target.advanceGame(target.getCurPacManDir());
+		return target;
+	}
+
+	/**
+	 * Restores a batch of 64 copies of the state and advances them by one tick, Ms Pac-Man and the ghosts of every
+	 * copy moving in fixed random directions (divide by 64 for one game; unlike copyIntoAndAdvance(), no ghost
+	 * controller is asked for the ghost actions).
+	 */
+	@Benchmark
+	public BatchGame batchCopyIntoAndAdvance() {
+		batchSource.copyInto(batch);
+		batch.advance(pacManDirs, ghostDirs);
+		return batch;
+	}
+
+	@Benchmark
+	public int getPathDistance() {
+		int i = nextPair();
+		return game.getPathDistance(from[i], to[i]);
+	}
+
+	@Benchmark
+	public int[] getPath() {
+		int i = nextPair();
+		return game.getPath(from[i], to[i]);
+	}
+
+	@Benchmark
+	public int getGhostPathDistance() {
+		int i = nextPair();
+		return game.getGhostPathDistance(ghosts[i], to[i]);
+	}
+
+	@Benchmark
+	public int getTarget() {
+		return game.getTarget(game.getCurPacManLoc(), game.getPillIndicesActive(), true, Game.DM.PATH);
+	}
+
+	@Benchmark
+	public int[] getPillIndicesActive() {
+		return game.getPillIndicesActive();
+	}
+
+	@Benchmark
+	public int getDistanceToNearestPill() {
+		return game.getDistanceToNearestPill();
+	}
+}
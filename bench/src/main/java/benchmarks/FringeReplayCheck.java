@@ -0,0 +1,190 @@
+package benchmarks;
+
+import controllers.ghosts.game.GameGhosts;
+import controllers.pacman.modules.AStarSearch;
+import game.GameConfig;
+import game.core.Game;
+import game.core._G_;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Checks that {@link AStarSearch} polls its fringe in the same order as the PriorityQueue of PriorityNodes that
+ * IvanMudrak searched with before. Fringes are recorded from A* searches over game states (seed 0, default ghosts)
+ * and from random entries with many equal keys and negative lives; each is replayed through a PriorityQueue ordered
+ * field by field like PriorityNode was and through AStarSearch keyed by {@link AStarSearch#sortKey(int, Game)}.
+ * <br/><br/>
+ * Run with: java -cp bench/target/benchmarks.jar benchmarks.FringeReplayCheck (exits with status 1 on the first
+ * difference).
+ */
+public class FringeReplayCheck {
+
+    // an entry pushed to the fringe; a null entry in a recorded fringe stands for a poll
+    private static final class Entry {
+        final int id, priority, level, lives, pills;
+        final long key;
+        Game state;    // only while recording
+
+        Entry(int id, int priority, int level, int lives, int pills, long key) {
+            this.id = id;
+            this.priority = priority;
+            this.level = level;
+            this.lives = lives;
+            this.pills = pills;
+            this.key = key;
+        }
+    }
+
+    // the order of PriorityNode.compareTo(-)
+    private static final Comparator<Entry> FIELDS = (a, b) -> {
+        if (a.level != b.level) return Integer.compare(a.level, b.level);
+        if (a.lives != b.lives) return -Integer.compare(a.lives, b.lives);
+        if (a.pills != b.pills) return Integer.compare(a.pills, b.pills);
+        return Integer.compare(a.priority, b.priority);
+    };
+
+    public static void main(String[] args) {
+        GameConfig config = new GameConfig();
+        config.seed = 0;
+
+        GameGhosts ghosts = new GameGhosts(4);
+        _G_ game = new _G_();
+        game.newGame(config, ghosts);
+        ghosts.reset(game);
+
+        int polls = 0;
+        try {
+            Random random = new Random(0);
+            for (int search = 0; search < 20 && !game.gameOver(); search++) {
+                polls += replay(recordSearch(game, random.nextInt(game.getNumberOfNodes()), 2000), game);
+
+                for (int tick = 0; tick < 100 && !game.gameOver(); tick++) {
+                    int[] directions = game.getPossiblePacManDirs(false);
+                    game.advanceGame(directions[random.nextInt(directions.length)]);
+                }
+            }
+            polls += replay(recordRandom(new Random(1), 100000), game);
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("fringe replay: " + polls + " entries polled in the same order");
+    }
+
+    /**
+     * Records the fringe of an A* search from the given state to the goal, expanding the nodes like IvanMudrak does
+     * (but without its ghost heuristic), at most maxExpansions times.
+     */
+    private static List<Entry> recordSearch(Game root, int goal, int maxExpansions) {
+        List<Entry> trace = new ArrayList<Entry>();
+        PriorityQueue<Entry> fringe = new PriorityQueue<Entry>(FIELDS);
+        Map<Integer, Integer> costs = new HashMap<Integer, Integer>();
+
+        costs.put(root.getCurPacManLoc(), 0);
+        push(trace, fringe, 0, root.copy());
+
+        for (int expansions = 0; !fringe.isEmpty() && expansions < maxExpansions; expansions++) {
+            Entry current = fringe.poll();
+            trace.add(null);
+
+            Game state = current.state;
+            current.state = null;
+            int node = state.getCurPacManLoc();
+            if (node == goal)
+                break;
+
+            int cost = costs.get(node);
+            for (int direction = 0; direction < 4; direction++) {
+                if (state.getNeighbour(node, direction) == -1)
+                    continue;
+                Game next = state.copy();
+                next.advanceGame(direction);
+
+                int nextNode = next.getCurPacManLoc();
+                int nextCost = cost + state.getManhattanDistance(node, nextNode);
+                Integer known = costs.get(nextNode);
+                if (known == null || nextCost < known) {
+                    costs.put(nextNode, nextCost);
+                    push(trace, fringe, nextCost + state.getManhattanDistance(nextNode, goal), next);
+                }
+            }
+        }
+        for (Entry entry : fringe)
+            entry.state = null;
+        return trace;
+    }
+
+    private static void push(List<Entry> trace, PriorityQueue<Entry> fringe, int priority, Game state) {
+        Entry entry = new Entry(trace.size(), priority, state.getCurLevel(), state.getLivesRemaining(),
+                                state.getNumActivePills(), AStarSearch.sortKey(priority, state));
+        entry.state = state;
+        trace.add(entry);
+        fringe.add(entry);
+    }
+
+    /**
+     * Records a fringe of random pushes and polls, with few distinct values per field so that many keys are equal,
+     * lives down to -3 and priorities at both ends of the int range.
+     */
+    private static List<Entry> recordRandom(Random random, int operations) {
+        int[] priorities = { Integer.MIN_VALUE, -1, 0, 1, 2, 3, Integer.MAX_VALUE };
+        List<Entry> trace = new ArrayList<Entry>();
+        int size = 0;
+        for (int i = 0; i < operations; i++) {
+            if (size > 0 && random.nextInt(3) == 0) {
+                trace.add(null);
+                size--;
+                continue;
+            }
+            int priority = priorities[random.nextInt(priorities.length)];
+            int level = 1 + random.nextInt(2);
+            int lives = random.nextInt(7) - 3;
+            int pills = random.nextInt(3);
+            trace.add(new Entry(trace.size(), priority, level, lives, pills, AStarSearch.sortKey(priority, level, lives, pills)));
+            size++;
+        }
+        return trace;
+    }
+
+    /**
+     * Replays a recorded fringe through a PriorityQueue and through AStarSearch and then drains both.
+     * @return the number of entries polled
+     * @throws IllegalStateException if an entry comes out of AStarSearch out of order
+     */
+    private static int replay(List<Entry> trace, Game slotGame) {
+        PriorityQueue<Entry> queue = new PriorityQueue<Entry>(FIELDS);
+        AStarSearch search = new AStarSearch();
+        search.start(0);
+
+        int polls = 0;
+        for (Entry entry : trace) {
+            if (entry != null) {
+                queue.add(entry);
+                search.push(entry.key, entry.id, search.newState(slotGame));
+            } else {
+                compare(queue.poll(), search, polls++);
+            }
+        }
+        while (!queue.isEmpty())
+            compare(queue.poll(), search, polls++);
+        if (!search.isEmpty())
+            throw new IllegalStateException("AStarSearch holds more entries than the PriorityQueue");
+        return polls;
+    }
+
+    private static void compare(Entry expected, AStarSearch search, int poll) {
+        int slot = search.poll();
+        int id = slot < 0 ? -1 : search.getNode(slot);
+        if (slot >= 0)
+            search.release(slot);
+        if (id != expected.id)
+            throw new IllegalStateException("poll " + poll + ": PriorityQueue gives entry " + expected.id
+                                            + ", AStarSearch entry " + id);
+    }
+}
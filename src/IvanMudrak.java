@@ -1,10 +1,9 @@
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.HashSet;
 
 import controllers.pacman.PacManControllerBase;
+import controllers.pacman.modules.AStarSearch;
 import game.core.Game;
 import game.core.Game.DM;
 import game.core.GameView;
@@ -16,20 +15,18 @@ public final class IvanMudrak extends PacManControllerBase {
     private int ghostEdibleReward = 500;
     private int ghostNonEdibleFee = 2500;
 
+    // reused in every tick, so that expanding a node does not allocate
+    private final AStarSearch search = new AStarSearch();
+
     @Override
     public void tick(Game game, long timeDue) {
         Color pathColor = Color.GREEN;
         boolean isTimeout = false;
         int start = game.getCurPacManLoc();
 
-        PriorityQueue<PriorityNode> fringe = new PriorityQueue<>();
-        fringe.add(new PriorityNode(start, 0, game));
-
-        HashMap<Integer, Integer> visitedCosts = new HashMap<>();
-        visitedCosts.put(start, 0);
-
-        HashMap<Integer, Integer> cameFrom = new HashMap<>();
-        cameFrom.put(start, null);
+        search.start(game.getNumberOfNodes());
+        search.relax(start, 0, AStarSearch.NO_PARENT);
+        search.push(AStarSearch.sortKey(0, game), start, search.newState(game));
 
         int goal = GetGoal(start, game);
         
@@ -38,44 +35,53 @@ public final class IvanMudrak extends PacManControllerBase {
             return;
         }
 
-        while (!fringe.isEmpty()) {
+        while (!search.isEmpty()) {
 
             if (System.currentTimeMillis() >= timeDue) {
                 isTimeout = true;
                 break;
             }
             
-            PriorityNode currentPriorityNode = fringe.poll();
-            Game currentGameState = currentPriorityNode.game;
+            int currentSlot = search.poll();
+            if (currentSlot < 0) {
+                break;
+            }
+            int currentNode = search.getNode(currentSlot);
+            Game currentGameState = search.getState(currentSlot);
 
-            if (currentPriorityNode.node == goal) {
+            if (currentNode == goal) {
                 break;
             }
 
-            int[] possibleActions = currentGameState.getPossiblePacManDirs(true);
-            for (int action : possibleActions) {
-                Game nextState = currentGameState.copy();
+            int currentCost = search.getCost(currentNode);
+            for (int action = 0; action < 4; action++) {
+                if (currentGameState.getNeighbour(currentNode, action) == -1) {
+                    continue;
+                }
+                int nextSlot = search.newState(currentGameState);
+                Game nextState = search.getState(nextSlot);
                 nextState.advanceGame(action);
 
                 int nextNode = nextState.getCurPacManLoc();
-                int currentCost = visitedCosts.get(currentPriorityNode.node);
-                int newNextCost = currentCost + currentGameState.getManhattanDistance(currentPriorityNode.node, nextNode);
-
-                Integer nextCost = visitedCosts.get(nextNode);
-                if (nextCost == null || newNextCost < nextCost) {
-                    visitedCosts.put(nextNode, newNextCost);
+                int newNextCost = currentCost + currentGameState.getManhattanDistance(currentNode, nextNode);
 
+                if (search.relax(nextNode, newNextCost, currentNode)) {
                     int priority = newNextCost + Heuristic(currentGameState, nextNode, goal);
-                    fringe.add(new PriorityNode(nextNode, priority, nextState));
-                    cameFrom.put(nextNode, currentPriorityNode.node);
+                    search.push(AStarSearch.sortKey(priority, nextState), nextNode, nextSlot);
+                } else {
+                    search.release(nextSlot);
                 }
             }
+            search.release(currentSlot);
         }
 
-        GameView.addLines(game, Color.BLUE, start, goal);
+        boolean debugging = GameView.isDebugging(game);
+        if (debugging) {
+            GameView.addLines(game, Color.BLUE, start, goal);
+        }
 
-        if(!cameFrom.containsKey(goal)) {
-            goal = FindNearestPoint(start, goal, cameFrom);
+        if(!search.isReached(goal)) {
+            goal = FindNearestPoint(game, start, goal);
             pathColor = Color.YELLOW;
         }
 
@@ -84,23 +90,24 @@ public final class IvanMudrak extends PacManControllerBase {
         }
 
         int nextDirection;
-        Integer nextNode = GetNextNode(start, goal, cameFrom);
+        int nextNode = GetNextNode(start, goal);
         if(nextNode == start) {
             nextDirection = game.getCurPacManDir();
         } else {
             nextDirection  = game.getNextPacManDir(nextNode, true, DM.MANHATTAN);
         }
         pacman.set(nextDirection);
-        ShowPath(game, start, goal, cameFrom, pathColor);
+        if (debugging) {
+            ShowPath(game, start, goal, pathColor);
+        }
     }
-    
 
-    private void ShowPath(Game game, int start, int goal, HashMap<Integer, Integer> cameFrom, Color pathColor) {
-        int[] path = GetPath(start, goal, cameFrom);
+    private void ShowPath(Game game, int start, int goal, Color pathColor) {
+        int[] path = GetPath(start, goal);
         GameView.addPoints(game, pathColor, path);
     }
 
-    private Integer GetNextNode(int start, int goal, HashMap<Integer, Integer> cameFrom) {
+    private int GetNextNode(int start, int goal) {
         if(goal == start) {
             return start;
         }
@@ -109,59 +116,48 @@ public final class IvanMudrak extends PacManControllerBase {
         int previousNode = -1;
         while (currentNode != start) {
             previousNode = currentNode;
-            currentNode = cameFrom.get(currentNode);
+            currentNode = search.getParent(currentNode);
         }
         return previousNode;
     }
 
-    private int FindNearestPoint(int start, int goal, HashMap<Integer, Integer> cameFrom) {
-        ArrayList<Integer> nearestPoints = new ArrayList<>();
-        int minDistance = Integer.MAX_VALUE;
-        
-        for (Map.Entry<Integer, Integer> entry : cameFrom.entrySet()) {
-            int point = entry.getKey();
-            int distance = game.getManhattanDistance(point, goal);
-            
-            if (distance < minDistance) {
-                nearestPoints.clear();
-                nearestPoints.add(point);
-                minDistance = distance;   
-            }   else if (distance == minDistance) {
-                nearestPoints.add(point);
-            }
+    // among the reached nodes nearest to the goal, the first one nearest to the start; "first" in the order of a
+    // hash set filled in the order the nodes were reached, which is the order ties were broken in when the search
+    // kept its parents in a HashMap (only needed when the goal has not been reached)
+    private int FindNearestPoint(Game game, int start, int goal) {
+        HashSet<Integer> reached = new HashSet<>();
+        for (int i = 0; i < search.getNumReached(); i++) {
+            reached.add(search.getReached(i));
         }
 
-        return GetNearestPoint(start, nearestPoints);
-    }   
+        int nearestPoint = start;
+        int minDistance = Integer.MAX_VALUE;
+        int minDistanceToStart = Integer.MAX_VALUE;
 
-    private int GetNearestPoint(int start, ArrayList<Integer> points) {
-        int nearestPointToStart = points.get(0);
-        int minDistanceToStart = game.getManhattanDistance(nearestPointToStart, start);
-    
-        for (int point : points) {
+        for (int point : reached) {
+            int distance = game.getManhattanDistance(point, goal);
             int distanceToStart = game.getManhattanDistance(point, start);
-            
-            if (distanceToStart < minDistanceToStart) {
-                nearestPointToStart = point;
+
+            if (distance < minDistance || (distance == minDistance && distanceToStart < minDistanceToStart)) {
+                nearestPoint = point;
+                minDistance = distance;
                 minDistanceToStart = distanceToStart;
             }
         }
-        return nearestPointToStart;
-    }
-
-	private int[] GetPath(int start, int goal, HashMap<Integer, Integer> cameFrom) {
-        ArrayList<Integer> pathList = new ArrayList<>();
-        int currentNode = goal;
-        pathList.add(goal);
+        return nearestPoint;
+    }   
 
-        while (currentNode != start) {
-            currentNode = cameFrom.get(currentNode);
-            pathList.add(currentNode);
+	private int[] GetPath(int start, int goal) {
+        int length = 1;
+        for (int node = goal; node != start; node = search.getParent(node)) {
+            length++;
         }
 
-        int[] path = new int[pathList.size()];
-        for (int i = 0; i < pathList.size(); i++) {
-            path[i] = pathList.get(i);
+        int[] path = new int[length];
+        int node = goal;
+        for (int i = 0; i < length; i++) {
+            path[i] = node;
+            node = search.getParent(node);
         }
         return path;
 	}
@@ -187,32 +183,27 @@ public final class IvanMudrak extends PacManControllerBase {
     private int GetGhostHeuristic(Game game) {
 
         int start = game.getCurPacManLoc();
-        int ghostDistances[] = new int[Game.NUM_GHOSTS];
-        for(int i = 0; i < Game.NUM_GHOSTS; i++) 
-        {
-            int distance = game.getManhattanDistance(start, game.getCurGhostLoc(i));
-            ghostDistances[i] = distance;
-        }
 
         int H_ghost = 0;
-        for (int i = 0; i < ghostDistances.length; i++) {
+        for (int i = 0; i < Game.NUM_GHOSTS; i++) {
+            int distance = game.getManhattanDistance(start, game.getCurGhostLoc(i));
 
-            if(ghostDistances[i] < ghostDistance) {
+            if(distance < ghostDistance) {
                 if (game.isEdible(i)) {
-                    if(ghostDistances[i] < 3) 
+                    if(distance < 3) 
                     {
                         H_ghost -= 100000;
                         continue;
                     }
-                    H_ghost -= ghostEdibleReward * 1 / ghostDistances[i];
+                    H_ghost -= ghostEdibleReward * 1 / distance;
                 } 
                 else {
-                    if(ghostDistances[i] < 3) 
+                    if(distance < 3) 
                     {
                         H_ghost += 10000000;
                         continue;
                     }
-                    H_ghost += ghostNonEdibleFee * 1 / ghostDistances[i];
+                    H_ghost += ghostNonEdibleFee * 1 / distance;
                 }
             }
         }
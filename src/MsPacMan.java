@@ -2,6 +2,8 @@ import static java.lang.System.out;
 
 import java.io.File;
 
+import java.util.Map;
+
 import game.*;
 import controllers.ghosts.game.GameGhosts;
 import controllers.pacman.*;
@@ -11,12 +13,16 @@ public class MsPacMan {
     static void usage() {
         out.println("usage: mspac [<agent-classname>] [<option>...]");
         out.println("options:");
+        out.println("  -bench csv|json : benchmark the game engine (and the agent, if given) and print a report");
         out.println("  -id <name> : agent ID for reporting");
         out.println("  -level <num> : starting level");
+        out.println("  -lockstep : tick controllers synchronously, without wall-clock deadlines");
         out.println("  -resultdir <path> : directory for results in CSV format");
         out.println("  -seed <num> : random seed");
         out.println("  -sim <count> : simulate a series of games without visualization");
+        out.println("  -threads <count> : number of games to simulate in parallel (default 1)");
         out.println("  -v : verbose");
+        out.println("  -vthreads : run controllers (and parallel games) on virtual threads");
         System.exit(1);
     }
     public static void main(String[] args) throws Exception {
@@ -27,17 +33,29 @@ public class MsPacMan {
         int seed = 0;
         boolean seedSpecified = false;
         int sim = 0;
+        int threads = 1;
+        boolean lockstep = false;
+        boolean virtualThreads = false;
+        String bench = null;
         boolean verbose = false;
 
         for (int i = 0 ; i < args.length ; ++i) {
             String s = args[i];
             switch (s) {
+                case "-bench":
+                    bench = args[++i];
+                    if (!bench.equals("csv") && !bench.equals("json"))
+                        usage();
+                    break;
                 case "-id":
                     agentId = args[++i];
                     break;
                 case "-level":
                     level = Integer.parseInt(args[++i]); 
                     break;
+                case "-lockstep":
+                    lockstep = true;
+                    break;
                 case "-resultdir":
                     resultdir = args[++i];
                     break;
@@ -48,9 +66,15 @@ public class MsPacMan {
                 case "-sim":
                     sim = Integer.parseInt(args[++i]);
                     break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
                 case "-v":
                     verbose = true;
                     break;
+                case "-vthreads":
+                    virtualThreads = true;
+                    break;
                 default:
                     if (s.startsWith("-"))
                         usage();
@@ -58,9 +82,24 @@ public class MsPacMan {
             }
         }
 
+        if (bench != null) {
+            IPacManController agent = agentClass == null ? null :
+                (IPacManController) Class.forName(agentClass).getConstructor().newInstance();
+            
+            System.err.println("Benchmarking...");
+            Map<String, PerformanceChecker.CheckResult> results = new PerformanceChecker().runSuites(agent, 5);
+            if (bench.equals("csv"))
+                PerformanceChecker.writeCSV(results, System.out);
+            else
+                PerformanceChecker.writeJSON(results, agentClass, System.out);
+            return;
+        }
+
 		SimulatorConfig config = new SimulatorConfig();
         config.ghostsController = new GameGhosts(4);
         config.game.startingLevel = level;
+        config.lockstep = lockstep;
+        config.virtualThreads = virtualThreads;
 
         if (sim > 0) {
             if (agentClass == null) {
@@ -71,7 +110,7 @@ public class MsPacMan {
             config.visualize = false;
             EvaluateAgent evaluate =
                 new EvaluateAgent(seedSpecified ? seed : 0, config, sim,
-                                  resultdir == null ? null : new File(resultdir));
+                                  resultdir == null ? null : new File(resultdir), threads);
 
             if (agentId == null)
                 agentId = agentClass.substring(agentClass.lastIndexOf(".") + 1);
@@ -13,9 +13,19 @@ public enum Direction {
 	
 	private static Direction[] arrows = new Direction[]{UP, RIGHT, DOWN, LEFT};
 	
-	private static List<Direction> arrowsList = null;
+	private static List<Direction> arrowsList = new ArrayList<Direction>(4);
 	
-	private static Map<Integer, Direction> indices = null;
+	private static Map<Integer, Direction> indices = new HashMap<Integer, Direction>();
+	
+	// built eagerly, so that games running in parallel threads may share them
+	static {
+		for (Direction dir : values()) {
+			indices.put(dir.index, dir);
+		}
+		for (Direction d : arrows) {
+			arrowsList.add(d);
+		}
+	}
 	
 	public final int index;
 	public final int dX;
@@ -61,12 +71,6 @@ public enum Direction {
 	}
 	
 	public static Direction forIndex(int directionIndex) {
-		if (indices == null) {
-			indices = new HashMap<Integer, Direction>();
-			for (Direction dir : values()) {
-				indices.put(dir.index, dir);
-			}
-		}
 		Direction dir = indices.get(directionIndex);
 		if (dir == null) return NONE;
 		return dir;
@@ -85,12 +89,6 @@ public enum Direction {
 	 * @return
 	 */
 	public static List<Direction> arrowsList() {
-		if (arrowsList == null) {
-			arrowsList = new ArrayList<Direction>(4);
-			for (Direction d : arrows) {
-				arrowsList.add(d);
-			}
-		}
 		return arrowsList;
 	}
 	
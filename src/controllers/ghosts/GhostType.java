@@ -8,19 +8,20 @@ public enum GhostType {
 	
 	public final int index;
 	
-	private static Map<Integer, GhostType> types = null;
+	private static Map<Integer, GhostType> types = new HashMap<Integer, GhostType>();
+	
+	// built eagerly, so that games running in parallel threads may share it
+	static {
+		for (GhostType type : values()) {
+			types.put(type.index, type);
+		}
+	}
 	
 	private GhostType(int index) {
 		this.index = index;		
 	}
 	
 	public static GhostType forIndex(int index) {
-		if (types == null) {
-			types = new HashMap<Integer, GhostType>();
-			for (GhostType type : values()) {
-				types.put(type.index, type);
-			}
-		}
 		return types.get(index);
 	}
 }
@@ -12,6 +12,18 @@ import game.core.Game;
 public interface IGhostsController
 {
 	public IGhostsController copy();
+	
+	/**
+	 * Puts 'target' (a controller obtained from an earlier {@link #copy()}, or null) into the same state as this
+	 * controller and returns it. Used by {@link Game#copyInto(Game)} to avoid allocating a new controller;
+	 * controllers that cannot copy themselves in place simply return a new {@link #copy()}.
+	 * 
+	 * @param target controller to reuse, may be null
+	 * @return the copy of this controller
+	 */
+	public default IGhostsController copyInto(IGhostsController target) {
+		return copy();
+	}
 
 	/**
 	 * How many ghosts (0-4) this controller controls. 
@@ -39,7 +51,8 @@ public interface IGhostsController
 	 * Persist your decision within {@link PacManAction} that is periodically read via {@link #getAction()}.
 	 * 
 	 * @param game current state of the game
-	 * @param timeDue how much time (in millis) do you have for your action-selection before {@link #getAction()} will get called.
+	 * @param timeDue how much time (in millis) do you have for your action-selection before {@link #getAction()} will get called;
+	 *                {@link game.SimulatorConfig#NO_DEADLINE} in lockstep mode, where you should bound your thinking yourself.
 	 */
 	public void tick(Game game, long timeDue);
 	
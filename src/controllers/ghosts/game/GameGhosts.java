@@ -70,7 +70,36 @@ public class GameGhosts implements IGhostsController
 		ghosts.currentGlobalState = currentGlobalState;
 		ghosts.ghostTarget = ghostTarget == null ? null :
 			Arrays.copyOf(ghostTarget, ghostTarget.length);
-		ghosts.GhostState = Arrays.copyOf(GhostState, GhostState.length);
+		ghosts.GhostState = GhostState == null ? null :
+			Arrays.copyOf(GhostState, GhostState.length);
+		return ghosts;
+	}
+	
+	@Override
+	public IGhostsController copyInto(IGhostsController target) {
+		if (target == this) return this;
+		if (!(target instanceof GameGhosts) || ((GameGhosts)target).ghostCount != ghostCount) return copy();
+		
+		GameGhosts ghosts = (GameGhosts)target;
+		ghosts.Debugging = Debugging;
+		ghosts.stateChangeShiftTime = stateChangeShiftTime;
+		ghosts.numberOfScatterOccurred = numberOfScatterOccurred;
+		ghosts.numberOfChaseOccurred = numberOfChaseOccurred;
+		ghosts.ScatterHandler = ScatterHandler;
+		ghosts.ChaseHandler = ChaseHandler;
+		ghosts.currentGlobalState = currentGlobalState;
+		if (ghostTarget == null)
+			ghosts.ghostTarget = null;
+		else if (ghosts.ghostTarget != null && ghosts.ghostTarget.length == ghostTarget.length)
+			System.arraycopy(ghostTarget, 0, ghosts.ghostTarget, 0, ghostTarget.length);
+		else
+			ghosts.ghostTarget = Arrays.copyOf(ghostTarget, ghostTarget.length);
+		if (GhostState == null)
+			ghosts.GhostState = null;
+		else if (ghosts.GhostState != null && ghosts.GhostState.length == GhostState.length)
+			System.arraycopy(GhostState, 0, ghosts.GhostState, 0, GhostState.length);
+		else
+			ghosts.GhostState = Arrays.copyOf(GhostState, GhostState.length);
 		return ghosts;
 	}
 
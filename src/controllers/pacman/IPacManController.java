@@ -30,7 +30,8 @@ public interface IPacManController
 	 * Persist your decision within {@link PacManAction} that is periodically read via {@link #getAction()}.
 	 * 
 	 * @param game current state of the game
-	 * @param timeDue how much time (in millis) do you have for your action-selection before {@link #getAction()} will get called.
+	 * @param timeDue how much time (in millis) do you have for your action-selection before {@link #getAction()} will get called;
+	 *                {@link game.SimulatorConfig#NO_DEADLINE} in lockstep mode, where you should bound your thinking yourself.
 	 */
 	public void tick(Game game, long timeDue);
 	
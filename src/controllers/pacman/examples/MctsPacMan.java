@@ -0,0 +1,275 @@
+package controllers.pacman.examples;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import controllers.pacman.PacManControllerBase;
+import game.SimulatorConfig;
+import game.core.Game;
+import game.core.GameView;
+
+/**
+ * Monte Carlo Tree Search over the forward model, as a reference for search-based agents.
+ * <br/><br/>
+ * The tree is over junction-to-junction moves ({@link Game#advanceToNextJunction(int)}): a child is the state after
+ * Ms Pac-Man runs in a direction up to the next junction. Every iteration replays the moves from the root on a single
+ * scratch game restored with {@link Game#copyInto(Game)} (each copy gets its own copy of the game's random number
+ * generator, in the state it had at the root, so the same moves always lead to the same state), and then plays random
+ * junction-to-junction moves up to a horizon. The reward is 0 if
+ * she loses a life, 1 if she clears the level, and otherwise grows from 0.5 with the points scored.
+ * <br/><br/>
+ * The search is root-parallel: one independent tree per worker of a shared {@link ForkJoinPool} sized to the
+ * available processors, each searching until shortly before the deadline; then the visit counts of the first moves
+ * are summed over the trees and the most visited one is taken. Without a deadline ({@link SimulatorConfig#lockstep})
+ * a fixed number of trees runs a fixed number of iterations each instead, so that the agent stays deterministic and
+ * plays the same on any machine.
+ * <br/><br/>
+ * The number of iterations (rollouts) and the rollouts per second of the last tick are available through
+ * {@link #getLastRollouts()} and {@link #getLastRolloutsPerSecond()}, and are shown next to her in debug views.
+ */
+public class MctsPacMan extends PacManControllerBase
+{
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	private static final int HORIZON_TICKS = 120;
+	private static final double SCORE_SCALE = 2000;
+	private static final double EXPLORATION = 0.7;
+	private static final long MARGIN_MILLIS = 5;
+	private static final int ITERATIONS_WITHOUT_DEADLINE = 300;
+	private static final int TREES_WITHOUT_DEADLINE = 4;
+
+	private final Tree[] trees;
+	private final int treesWithDeadline, treesWithoutDeadline;
+
+	private long lastRollouts;
+	private double lastRolloutsPerSecond;
+
+	/**
+	 * Searches with one tree per processor, or with {@link #TREES_WITHOUT_DEADLINE} trees if there is no deadline.
+	 */
+	public MctsPacMan() {
+		this(POOL.getParallelism(), TREES_WITHOUT_DEADLINE);
+	}
+
+	/**
+	 * Searches with the given number of trees (still on the shared pool, so they run in parallel only up to the
+	 * number of processors).
+	 */
+	public MctsPacMan(int numTrees) {
+		this(numTrees, numTrees);
+	}
+
+	private MctsPacMan(int treesWithDeadline, int treesWithoutDeadline) {
+		this.treesWithDeadline = treesWithDeadline;
+		this.treesWithoutDeadline = treesWithoutDeadline;
+		trees = new Tree[Math.max(treesWithDeadline, treesWithoutDeadline)];
+		for (int i = 0; i < trees.length; ++i) trees[i] = new Tree();
+	}
+
+	@Override
+	public void tick(Game game, long timeDue) {
+		long start = System.nanoTime();
+		boolean deadline = timeDue != SimulatorConfig.NO_DEADLINE;
+		long stopNanos = deadline ? start + (timeDue - MARGIN_MILLIS - System.currentTimeMillis()) * 1000000 : Long.MAX_VALUE;
+		int maxIterations = deadline ? Integer.MAX_VALUE : ITERATIONS_WITHOUT_DEADLINE;
+		int numTrees = deadline ? treesWithDeadline : treesWithoutDeadline;
+
+		// every tree takes its own copy of the root (copying does not change the game)
+		for (int i = 0; i < numTrees; ++i) {
+			trees[i].reset(game, game.getHash() * 31 + i);
+		}
+
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[numTrees];
+		for (int i = 0; i < numTrees; ++i) {
+			Tree tree = trees[i];
+			tasks[i] = POOL.submit(() -> tree.search(stopNanos, maxIterations));
+		}
+		for (ForkJoinTask<?> task : tasks) task.join();
+
+		// merge the first moves of all trees
+		long[] visits = new long[4];
+		double[] values = new double[4];
+		long rollouts = 0;
+		for (int i = 0; i < numTrees; ++i) {
+			Tree tree = trees[i];
+			rollouts += tree.visits[0];
+			for (int dir = 0; dir < 4; ++dir) {
+				int child = tree.children[dir];
+				if (child > 0) {
+					visits[dir] += tree.visits[child];
+					values[dir] += tree.values[child];
+				}
+			}
+		}
+
+		int best = -1;
+		for (int dir = 0; dir < 4; ++dir) {
+			if (visits[dir] == 0) continue;
+			if (best < 0 || visits[dir] > visits[best] ||
+			    (visits[dir] == visits[best] && values[dir] / visits[dir] > values[best] / visits[best])) {
+				best = dir;
+			}
+		}
+		pacman.set(best >= 0 ? best : game.getCurPacManDir());
+
+		lastRollouts = rollouts;
+		lastRolloutsPerSecond = rollouts / ((System.nanoTime() - start) / 1e9);
+
+		if (GameView.isDebugging(game)) {
+			GameView.addText(game, game.getCurPacManLoc(), Color.WHITE, String.format("%,.0f rollouts/s", lastRolloutsPerSecond));
+		}
+	}
+
+	/**
+	 * Number of iterations (each ending in a rollout) of all trees in the last tick.
+	 */
+	public long getLastRollouts() {
+		return lastRollouts;
+	}
+
+	public double getLastRolloutsPerSecond() {
+		return lastRolloutsPerSecond;
+	}
+
+	/**
+	 * One search tree, kept across ticks so that its arrays and games are reused. Node 0 is the root; the children
+	 * of node n in direction d are children[4 * n + d] (0 if not expanded yet).
+	 */
+	private static final class Tree {
+		int[] children = new int[4 * 1024];
+		int[] visits = new int[1024];
+		double[] values = new double[1024];
+		int size;
+
+		int[] path = new int[64];
+
+		Game root, state;
+		int rootLives, rootLevel, rootScore;
+		long random;
+
+		void reset(Game game, long seed) {
+			if (root == null) {
+				root = game.copy();
+				state = game.copy();
+			} else {
+				game.copyInto(root);
+			}
+			rootLives = game.getLivesRemaining();
+			rootLevel = game.getCurLevel();
+			rootScore = game.getScore();
+			random = seed == 0 ? 1 : seed;
+
+			size = 0;
+			newNode();
+		}
+
+		void search(long stopNanos, int maxIterations) {
+			for (int i = 0; i < maxIterations && System.nanoTime() < stopNanos; ++i) {
+				iterate();
+			}
+		}
+
+		private void iterate() {
+			root.copyInto(state);
+			int node = 0;
+			int depth = 0;
+			int ticks = 0;
+			path[depth++] = node;
+
+			// selection and expansion
+			while (ticks < HORIZON_TICKS && !isTerminal()) {
+				int dir = select(node);
+				if (dir < 0) break;
+				int child = children[4 * node + dir];
+				if (child == 0) {
+					child = newNode();
+					children[4 * node + dir] = child;
+					ticks += state.advanceToNextJunction(dir);
+					if (depth == path.length) path = Arrays.copyOf(path, 2 * depth);
+					path[depth++] = child;
+					break;
+				}
+				ticks += state.advanceToNextJunction(dir);
+				if (depth == path.length) path = Arrays.copyOf(path, 2 * depth);
+				path[depth++] = node = child;
+			}
+
+			// rollout: random moves at junctions, not reversing
+			while (ticks < HORIZON_TICKS && !isTerminal()) {
+				ticks += state.advanceToNextJunction(randomDir(state.getCurPacManLoc(), state.getCurPacManDir()));
+			}
+
+			double reward = reward();
+			for (int i = 0; i < depth; ++i) {
+				visits[path[i]]++;
+				values[path[i]] += reward;
+			}
+		}
+
+		// an unexpanded direction if there is one (in a random order), otherwise the best by UCB1
+		private int select(int node) {
+			int loc = state.getCurPacManLoc();
+			int offset = nextInt(4);
+			for (int i = 0; i < 4; ++i) {
+				int dir = (offset + i) & 3;
+				if (state.getNeighbour(loc, dir) != -1 && children[4 * node + dir] == 0) return dir;
+			}
+
+			double logVisits = Math.log(visits[node]);
+			int best = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int dir = 0; dir < 4; ++dir) {
+				if (state.getNeighbour(loc, dir) == -1) continue;
+				int child = children[4 * node + dir];
+				double score = values[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+				if (score > bestScore) {
+					bestScore = score;
+					best = dir;
+				}
+			}
+			return best;
+		}
+
+		private int randomDir(int loc, int lastDir) {
+			int reverse = lastDir >= 0 && lastDir < 4 ? (lastDir + 2) & 3 : -1;
+			int offset = nextInt(4);
+			for (int i = 0; i < 4; ++i) {
+				int dir = (offset + i) & 3;
+				if (dir != reverse && state.getNeighbour(loc, dir) != -1) return dir;
+			}
+			return reverse;
+		}
+
+		private boolean isTerminal() {
+			return state.gameOver() || state.getLivesRemaining() < rootLives || state.getCurLevel() != rootLevel;
+		}
+
+		private double reward() {
+			if (state.getLivesRemaining() < rootLives) return 0;
+			if (state.getCurLevel() != rootLevel) return 1;
+			return 0.5 + 0.5 * Math.min(1, (state.getScore() - rootScore) / SCORE_SCALE);
+		}
+
+		private int newNode() {
+			if (size == visits.length) {
+				visits = Arrays.copyOf(visits, 2 * size);
+				values = Arrays.copyOf(values, 2 * size);
+				children = Arrays.copyOf(children, 8 * size);
+			}
+			visits[size] = 0;
+			values[size] = 0;
+			Arrays.fill(children, 4 * size, 4 * size + 4, 0);
+			return size++;
+		}
+
+		// xorshift64, so that the rollouts do not contend on (or allocate) a shared Random
+		private int nextInt(int bound) {
+			random ^= random << 13;
+			random ^= random >>> 7;
+			random ^= random << 17;
+			return (int) ((random >>> 33) % bound);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package controllers.pacman.modules;
+
+import java.util.Arrays;
+
+import game.core.Game;
+
+/**
+ * Scratch memory of an A* search over the nodes of a maze, kept by a controller and reused in every tick, so that
+ * the search itself does not allocate.
+ * <br/><br/>
+ * Costs and parents are indexed by node and belong to the current search only if their stamp equals the current
+ * generation; {@link #start(int)} therefore forgets them all in O(1). The reached nodes are also listed in the order
+ * they were first reached. Every entry of the fringe owns a slot holding the game state it was reached in; the games
+ * of the slots are pooled and overwritten via {@link Game#copyInto(Game)}.
+ * <br/><br/>
+ * The fringe is a binary heap of entries ordered by a long key (lower first), sifted exactly as
+ * {@link java.util.PriorityQueue} sifts its elements, so entries with equal keys come out in the same order as from a
+ * PriorityQueue of objects comparing like the keys. Entries are never dropped: one whose node has been reached more
+ * cheaply since is still polled, as the key may order by more than the cost (e.g., by the pills eaten on the way).
+ */
+public class AStarSearch {
+
+	public static final int UNREACHED = Integer.MAX_VALUE;
+	public static final int NO_PARENT = -1;
+
+	// per node
+	private int[] stamps = new int[0];
+	private int[] costs = new int[0];
+	private int[] parents = new int[0];
+	private int generation;
+	private int[] reached = new int[64];
+	private int numReached;
+
+	// the heap
+	private long[] heapKeys = new long[64];
+	private int[] heapSlots = new int[64];
+	private int size;
+
+	// per slot
+	private Game[] states = new Game[64];
+	private int[] slotNodes = new int[64];
+	private int usedSlots;
+	private int[] freeSlots = new int[64];
+	private int freeCount;
+
+	/**
+	 * Starts a new search over the given number of nodes: no node is reached and the fringe is empty. (Nodes beyond
+	 * the number are accepted too, as a state advanced into the next level may be in a bigger maze.)
+	 */
+	public void start(int numNodes) {
+		if (stamps.length < numNodes) grow(numNodes);
+		if (++generation == 0) {
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+		numReached = 0;
+		size = 0;
+		usedSlots = 0;
+		freeCount = 0;
+	}
+
+	private void grow(int numNodes) {
+		stamps = Arrays.copyOf(stamps, numNodes);
+		costs = Arrays.copyOf(costs, numNodes);
+		parents = Arrays.copyOf(parents, numNodes);
+	}
+
+	public boolean isReached(int node) {
+		return node < stamps.length && stamps[node] == generation;
+	}
+
+	/**
+	 * Cheapest cost the node has been reached with, or {@link #UNREACHED}.
+	 */
+	public int getCost(int node) {
+		return isReached(node) ? costs[node] : UNREACHED;
+	}
+
+	/**
+	 * Node the node has been reached from in the cheapest way, or {@link #NO_PARENT}.
+	 */
+	public int getParent(int node) {
+		return isReached(node) ? parents[node] : NO_PARENT;
+	}
+
+	/**
+	 * Number of nodes reached in the current search.
+	 */
+	public int getNumReached() {
+		return numReached;
+	}
+
+	/**
+	 * The i-th node reached in the current search, 0 <= i < {@link #getNumReached()}, in the order they were first
+	 * reached.
+	 */
+	public int getReached(int i) {
+		return reached[i];
+	}
+
+	/**
+	 * Records that the node can be reached from the parent with the given cost, if that is cheaper than before.
+	 * @return whether it was cheaper (and the node should be pushed)
+	 */
+	public boolean relax(int node, int cost, int parent) {
+		if (node >= stamps.length) grow(Math.max(node + 1, 2 * stamps.length));
+		if (stamps[node] == generation) {
+			if (costs[node] <= cost) return false;
+		} else {
+			if (numReached == reached.length) reached = Arrays.copyOf(reached, 2 * numReached);
+			reached[numReached++] = node;
+			stamps[node] = generation;
+		}
+		costs[node] = cost;
+		parents[node] = parent;
+		return true;
+	}
+
+	/**
+	 * Takes a free slot and puts a copy of the given game into it.
+	 */
+	public int newState(Game source) {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			slot = usedSlots++;
+			if (slot == states.length) {
+				int capacity = 2 * slot;
+				states = Arrays.copyOf(states, capacity);
+				slotNodes = Arrays.copyOf(slotNodes, capacity);
+				freeSlots = Arrays.copyOf(freeSlots, capacity);
+			}
+		}
+		if (states[slot] == null) states[slot] = source.copy();
+		else source.copyInto(states[slot]);
+		return slot;
+	}
+
+	public Game getState(int slot) {
+		return states[slot];
+	}
+
+	public int getNode(int slot) {
+		return slotNodes[slot];
+	}
+
+	/**
+	 * Gives the slot back; its game will be overwritten by a later {@link #newState(Game)}.
+	 */
+	public void release(int slot) {
+		freeSlots[freeCount++] = slot;
+	}
+
+	/**
+	 * Adds an entry for the node, reached in the state of the slot, to the fringe.
+	 */
+	public void push(long key, int node, int slot) {
+		slotNodes[slot] = node;
+
+		if (size == heapKeys.length) {
+			heapKeys = Arrays.copyOf(heapKeys, 2 * size);
+			heapSlots = Arrays.copyOf(heapSlots, 2 * size);
+		}
+
+		// PriorityQueue.siftUp: stops at the first parent that is not greater
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (key >= heapKeys[parent]) break;
+			heapKeys[i] = heapKeys[parent];
+			heapSlots[i] = heapSlots[parent];
+			i = parent;
+		}
+		heapKeys[i] = key;
+		heapSlots[i] = slot;
+	}
+
+	/**
+	 * Key for {@link #push(long, int, int)} that orders the entries like the PriorityNodes of the search did before
+	 * they were replaced by this class: lower level first, then more remaining lives, then fewer active pills and
+	 * finally lower priority. Lives go negative when a searched state keeps losing them, so they are kept in
+	 * [-128, 127]; levels above 2047 and pill counts above 4095 are clamped (none occur in the game).
+	 */
+	public static long sortKey(int priority, Game game) {
+		return sortKey(priority, game.getCurLevel(), game.getLivesRemaining(), game.getNumActivePills());
+	}
+
+	public static long sortKey(int priority, int level, int lives, int pills) {
+		long lostLives = 0x7F - Math.max(Math.min(lives, 0x7F), -0x80);
+		return (long) Math.min(level, 0x7FF) << 52 | lostLives << 44 | (long) Math.min(pills, 0xFFF) << 32
+				| (priority ^ 0x80000000L) & 0xFFFFFFFFL;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the first entry of the fringe.
+	 * @return its slot (to be released by the caller), or -1 if the fringe is empty
+	 */
+	public int poll() {
+		if (size == 0) return -1;
+		int first = heapSlots[0];
+
+		int last = --size;
+		long key = heapKeys[last];
+		int slot = heapSlots[last];
+
+		// PriorityQueue.siftDown: the right child only if it is smaller, and stops at the first child that is not smaller
+		int i = 0;
+		int half = last >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < last && heapKeys[child] > heapKeys[child + 1]) child++;
+			if (key <= heapKeys[child]) break;
+			heapKeys[i] = heapKeys[child];
+			heapSlots[i] = heapSlots[child];
+			i = child;
+		}
+		heapKeys[i] = key;
+		heapSlots[i] = slot;
+		return first;
+	}
+}
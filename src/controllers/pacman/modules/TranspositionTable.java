@@ -0,0 +1,130 @@
+package controllers.pacman.modules;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for searches over game states, keyed by {@link game.core.Game#getHash()}. One table
+ * can be shared by several search threads and kept across ticks.
+ * <br/><br/>
+ * The table is open-addressed (one entry per slot, the slot given by the low bits of the hash) over a single
+ * long[]: every entry is two words, the hash XORed with the data and the data itself. Threads read and write the
+ * words without locks; an entry torn by concurrent writes does not verify against the hash and is simply a miss.
+ * <br/><br/>
+ * An entry is replaced by one of the same position, by a deeper one, or by any one if it was stored before the
+ * last {@link #nextAge()}; so instead of clearing the table between ticks, call {@link #nextAge()} and older
+ * results stay available until they are overwritten.
+ * <br/><br/>
+ * {@link #probe(long)} returns the data as one long, to be decoded with {@link #valueOf(long)},
+ * {@link #depthOf(long)} and {@link #dirOf(long)}, so that reading an entry does not allocate.
+ */
+public class TranspositionTable {
+
+	/**
+	 * Returned by {@link #probe(long)} if the position is not in the table.
+	 */
+	public static final long MISS = -1;
+
+	public static final int MAX_DEPTH = 0xFF;
+
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	// data: value (bits 0-31), depth (32-39), direction+1 (40-42), age (43-61), set bit 62 (an empty slot is 0)
+	private static final int DEPTH_SHIFT = 32, DIR_SHIFT = 40, AGE_SHIFT = 43;
+	private static final int AGE_MASK = (1 << 19) - 1;
+	private static final long VALID = 1L << 62;
+
+	private final long[] words;
+	private final int mask;
+
+	private volatile int age;
+
+	/**
+	 * Creates a table with the given number of entries, rounded up to a power of two (each entry takes 16 bytes).
+	 */
+	public TranspositionTable(int entries) {
+		int capacity = entries <= 1 ? 1 : Integer.highestOneBit(entries - 1) << 1;
+		if (capacity <= 0 || capacity > 1 << 29) throw new IllegalArgumentException("Invalid number of entries: " + entries);
+		words = new long[2 * capacity];
+		mask = capacity - 1;
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	public int getAge() {
+		return age;
+	}
+
+	/**
+	 * Marks all entries as old, e.g., at the start of a tick: they can still be probed but any store replaces them.
+	 * The age has 19 bits and wraps after 524288 calls, more than the ticks of a whole game (at most
+	 * LEVEL_LIMIT * MAX_LEVELS); an entry left untouched for a multiple of that many calls counts as current again,
+	 * so callers that keep a table for longer should {@link #clear()} it now and then.
+	 */
+	public void nextAge() {
+		age = (age + 1) & AGE_MASK;
+	}
+
+	/**
+	 * Removes all entries; not thread-safe with respect to concurrent probes and stores.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0);
+		age = 0;
+	}
+
+	/**
+	 * Data stored for the position, or {@link #MISS}.
+	 */
+	public long probe(long hash) {
+		int slot = 2 * ((int) hash & mask);
+		long data = (long) WORDS.getOpaque(words, slot + 1);
+		long check = (long) WORDS.getOpaque(words, slot);
+		return (check ^ data) == hash && (data & VALID) != 0 ? data : MISS;
+	}
+
+	/**
+	 * Stores the result of searching the position to the given depth (clamped to [0, {@link #MAX_DEPTH}]): its value
+	 * and the best direction (or -1), unless the slot holds a deeper result of another position from this age.
+	 */
+	public void store(long hash, int depth, int value, int dir) {
+		int slot = 2 * ((int) hash & mask);
+		int age = this.age;
+
+		long old = (long) WORDS.getOpaque(words, slot + 1);
+		if ((old & VALID) != 0) {
+			long oldHash = (long) WORDS.getOpaque(words, slot) ^ old;
+			if (oldHash != hash && ageOf(old) == age && depthOf(old) > depth) return;
+		}
+
+		long data = VALID
+		          | (long) value & 0xFFFFFFFFL
+		          | (long) Math.max(0, Math.min(depth, MAX_DEPTH)) << DEPTH_SHIFT
+		          | (long) ((dir + 1) & 0x7) << DIR_SHIFT
+		          | (long) age << AGE_SHIFT;
+		WORDS.setOpaque(words, slot + 1, data);
+		WORDS.setOpaque(words, slot, hash ^ data);
+	}
+
+	public static int valueOf(long data) {
+		return (int) data;
+	}
+
+	public static int depthOf(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * Best direction stored with the entry, or -1.
+	 */
+	public static int dirOf(long data) {
+		return ((int) (data >>> DIR_SHIFT) & 0x7) - 1;
+	}
+
+	static int ageOf(long data) {
+		return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+	}
+}
@@ -0,0 +1,34 @@
+package game;
+
+/**
+ * Think-time statistics of one controller over one game: the latency of every tick call and the number of frames
+ * in which the controller had not finished by the deadline.
+ */
+public class ControllerTiming {
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	private volatile int deadlineMisses;
+
+	void recordTick(long nanos) {
+		latencies.record(nanos);
+	}
+
+	void recordDeadlineMiss() {
+		deadlineMisses++;
+	}
+
+	/**
+	 * Latencies of the tick calls, in nanoseconds.
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * How many times the simulator had to proceed without the controller's decision.
+	 */
+	public int getDeadlineMisses() {
+		return deadlineMisses;
+	}
+}
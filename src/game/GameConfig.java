@@ -6,6 +6,12 @@ public class GameConfig {
 	
 	public int seed = -1;
 	
+	/**
+	 * Whether the game's random numbers should follow java.util.Random, so that a seed produces the same game as
+	 * in earlier versions. If false, a SplitMix64 generator (just as cheap to copy) is used instead.
+	 */
+	public boolean legacyRandom = true;
+	
 	/**
 	 * Whether POWER PILLS should be present within the environment.
 	 */
@@ -27,4 +33,18 @@ public class GameConfig {
 	 * How many lives to start with.
 	 */
 	public int lives = G.NUM_LIVES;
+	
+	public GameConfig clone() {
+		GameConfig result = new GameConfig();
+		
+		result.seed = seed;
+		result.legacyRandom = legacyRandom;
+		result.powerPillsEnabled = powerPillsEnabled;
+		result.totalPills = totalPills;
+		result.startingLevel = startingLevel;
+		result.levelsToPlay = levelsToPlay;
+		result.lives = lives;
+		
+		return result;
+	}
 }
@@ -0,0 +1,76 @@
+package game;
+
+/**
+ * Histogram of latencies (in nanoseconds) in a fixed amount of memory, no matter how many values are recorded.
+ * <br/><br/>
+ * Values are counted in logarithmic buckets: each power of two is split into 8 linear sub-buckets, so a percentile
+ * is reported as the upper bound of its bucket and overestimates by at most 12.5%. Values below 8 ns and the
+ * maximum are exact.
+ * <br/><br/>
+ * Recording is thread-safe (and cheap when uncontended), so the histogram may be read while a controller thread
+ * is still recording into it.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+
+	private long count;
+	private long sum;
+	private long max;
+
+	public synchronized void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+
+		counts[bucketOf(nanos)]++;
+		count++;
+		sum += nanos;
+		if (nanos > max) max = nanos;
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getMax() {
+		return max;
+	}
+
+	public synchronized double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Returns the value below which the given fraction (e.g., 0.99) of the recorded values lie, or 0 if there are none.
+	 */
+	public synchronized long getPercentile(double fraction) {
+		if (count == 0) return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < counts.length; ++bucket) {
+			seen += counts[bucket];
+			if (seen >= rank)
+				return Math.min(upperBoundOf(bucket), max);
+		}
+		return max;
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		int sub = bucket % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+}
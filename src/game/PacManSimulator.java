@@ -6,6 +6,7 @@ import game.core.*;
 
 import java.awt.event.KeyListener;
 import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * One simulator can run one instance of PacMan-vs-Ghosts game.
@@ -20,10 +21,62 @@ public class PacManSimulator {
 	
     private long due; 
     
-	public synchronized Game run(final SimulatorConfig config) {
+    // think-time statistics of the last game run
+    private ControllerTiming pacManTiming = new ControllerTiming();
+    private ControllerTiming ghostsTiming = new ControllerTiming();
+    private int suspendedFrames;
+    private long suspendedNanos;
+    
+    // not a synchronized method: a virtual thread waiting for its controllers inside it would pin its carrier thread
+    private final ReentrantLock runLock = new ReentrantLock();
+    
+	public Game run(final SimulatorConfig config) {
+		runLock.lock();
+		try {
+			return runGame(config);
+		} finally {
+			runLock.unlock();
+		}
+	}
+	
+	/**
+	 * Think-time statistics of the PacMan controller in the last game run.
+	 */
+	public ControllerTiming getPacManTiming() {
+		return pacManTiming;
+	}
+	
+	/**
+	 * Think-time statistics of the ghost controller in the last game run.
+	 */
+	public ControllerTiming getGhostsTiming() {
+		return ghostsTiming;
+	}
+	
+	/**
+	 * Number of frames of the last game run in which the game was suspended (see {@link Game#isSuspended()}), i.e.,
+	 * the controllers were not asked to think.
+	 */
+	public int getSuspendedFrames() {
+		return suspendedFrames;
+	}
+	
+	/**
+	 * Wall-clock time spent in the suspended frames of the last game run, in nanoseconds.
+	 */
+	public long getSuspendedNanos() {
+		return suspendedNanos;
+	}
+	
+	private Game runGame(final SimulatorConfig config) {
 		gv = null;
 		game = null;		
 		
+		final ControllerTiming pacManTiming = this.pacManTiming = new ControllerTiming();
+		final ControllerTiming ghostsTiming = this.ghostsTiming = new ControllerTiming();
+		suspendedFrames = 0;
+		suspendedNanos = 0;
+		
 		// INIT RANDOMNESS
 		if (config.game.seed < 0) {
 			config.game.seed = new Random(System.currentTimeMillis()).nextInt();
@@ -54,49 +107,70 @@ public class PacManSimulator {
 		int lastLevel = game.getCurLevel();
 		
 
-		// START CONTROLLERS (threads auto-start during instantiation)
-		ThinkingThread pacManThread = 
+		// START CONTROLLERS (threads auto-start during instantiation; none in lockstep mode)
+		ThinkingThread pacManThread = config.lockstep ? null :
 			new ThinkingThread(
 				"PAC-MAN",
 				new IThinkingMethod() {
 					@Override
 					public void think() {
+						long start = System.nanoTime();
 						config.pacManController.tick(game.copy(), due);		
+						pacManTiming.recordTick(System.nanoTime() - start);
 					}
-				}
+				},
+				config.virtualThreads
 			);
-		ThinkingThread ghostsThread =
+		ThinkingThread ghostsThread = config.lockstep ? null :
 			new ThinkingThread(
 				"GHOSTS",
 				new IThinkingMethod() {
 					@Override
 					public void think() {
-                        if (config.ghostsController != null)
+                        if (config.ghostsController != null) {
+                        	long start = System.nanoTime();
                             config.ghostsController.tick(game, due);			
+                            ghostsTiming.recordTick(System.nanoTime() - start);
+                        }
 					}
-				}
+				},
+				config.virtualThreads
 			);
-        
-		PerformanceChecker checker = new PerformanceChecker();
-		checker.CheckCopy(game.copy());
-		checker.CheckAdvance(game.copy());
-		checker.CheckAStar(config.pacManController, game.copy(), due);
+
 
 		// START THE GAME
 		try {
 			while(!game.gameOver())
 			{
 				due = System.currentTimeMillis() + config.thinkTimeMillis;
+				long frameStart = System.nanoTime();
+				boolean suspended = game.isSuspended();
 
-				if (!game.isSuspended()) {
+				if (config.lockstep) {
+					if (!suspended) {
+						// PacMan first, so that its copy is taken before the ghosts draw from the game's random numbers
+						long start = System.nanoTime();
+						config.pacManController.tick(game.copy(), SimulatorConfig.NO_DEADLINE);
+						pacManTiming.recordTick(System.nanoTime() - start);
+						if (config.ghostsController != null) {
+							start = System.nanoTime();
+							config.ghostsController.tick(game, SimulatorConfig.NO_DEADLINE);
+							ghostsTiming.recordTick(System.nanoTime() - start);
+						}
+					}
+				} else if (!suspended) {
 					pacManThread.startThinking();
 					ghostsThread.startThinking();
 					
-					if (!pacManThread.waitForResult(due))
+					if (!pacManThread.waitForResult(due)) {
+						pacManTiming.recordDeadlineMiss();
 						System.out.println("[SIMULATOR] PacMan is still thinking!");
+					}
 
-					if (!ghostsThread.waitForResult(due))
+					if (!ghostsThread.waitForResult(due)) {
+						ghostsTiming.recordDeadlineMiss();
 						System.out.println("[SIMULATOR] Ghosts are still thinking!");
+					}
 				}
 
                 if (config.visualize) {
@@ -151,11 +225,16 @@ public class PacManSimulator {
 		        if (config.visualize) {
 		        	gv.repaint();
 		        }
+		        
+		        if (suspended) {
+		        	suspendedFrames++;
+		        	suspendedNanos += System.nanoTime() - frameStart;
+		        }
 			}
 		} finally {		
 			// KILL THREADS
-			pacManThread.kill();
-			ghostsThread.kill();
+			if (pacManThread != null) pacManThread.kill();
+			if (ghostsThread != null) ghostsThread.kill();
 			
 			// CLEAN UP
 			if (config.visualize) {
@@ -1,61 +1,360 @@
 package game;
 
+import controllers.ghosts.game.GameGhosts;
 import controllers.pacman.IPacManController;
 import game.core.Game;
+import game.core._G_;
 
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Micro-benchmarks of the game engine and of a PacMan controller; see {@link #runSuites(IPacManController, int)}
+ * (the -bench mode of MsPacMan). Each check returns the average time of a single operation in nanoseconds.
+ */
 public class PerformanceChecker {
+	// a check is warmed up until both of the first two are reached (so that the JIT has compiled it), or until the last
+	private static final long WARMUP_MILLIS = 1000;
+	private static final long WARMUP_CALLS = 20000;
+	private static final long MAX_WARMUP_MILLIS = 10000;
+
+	private static final int AGENT_TICKS = 50;
+
+	private long sink;
+
 	public PerformanceChecker(){}
 
+	/**
+	 * Measurements of a check: how long it was warmed up for and the average time of an operation (in ns) in each
+	 * of the measured rounds.
+	 */
+	public static final class CheckResult {
+		public final long warmupCalls;
+		public final long warmupMillis;
+		public final double[] nanos;
+
+		CheckResult(long warmupCalls, long warmupMillis, double[] nanos) {
+			this.warmupCalls = warmupCalls;
+			this.warmupMillis = warmupMillis;
+			this.nanos = nanos;
+		}
+	}
+
+	// one round of a check, returning the average time of an operation in ns
+	private interface Round {
+		double run();
+	}
+
+    /**
+     * Runs all the checks on a fresh game (seed 0, level 1, default ghosts). Each check is first warmed up, for at
+     * least 1 s and 20000 operations (at most 10 s), to let the JIT compile the code, and then measured in the
+     * given number of rounds. The agent check is left out if no agent is given.
+     */
+    public Map<String, CheckResult> runSuites(IPacManController agent, int rounds) {
+        GameConfig config = new GameConfig();
+        config.seed = 0;
+
+        GameGhosts ghosts = new GameGhosts(4);
+        _G_ game = new _G_();
+        game.newGame(config, ghosts);
+        ghosts.reset(game);
+        if (agent != null)
+            agent.reset(game.copy());
+
+        Map<String, CheckResult> results = new LinkedHashMap<String, CheckResult>();
+        results.put("copy", measure(() -> CheckCopy(game.copy()), 1000, rounds));
+        results.put("copyInto", measure(() -> CheckCopyInto(game.copy()), 1000, rounds));
+        results.put("advance", measure(() -> CheckAdvance(game.copy()), 1000, rounds));
+        results.put("pathDistance", measure(() -> CheckPathDistance(game), 10000000, rounds));
+        results.put("handoff", measure(() -> CheckHandoff(), 100000, rounds));
+        results.put("handoffWaitNotify", measure(() -> CheckWaitNotifyHandoff(), 100000, rounds));
+        if (agent != null)
+            results.put("agentTick", measure(() -> CheckAStar(agent, game), AGENT_TICKS, rounds));
+        return results;
+    }
+
+    private static CheckResult measure(Round round, int callsPerRound, int rounds) {
+        long start = System.nanoTime();
+        long calls = 0;
+        long millis;
+        do {
+            round.run();
+            calls += callsPerRound;
+            millis = (System.nanoTime() - start) / 1000000;
+        } while (millis < MAX_WARMUP_MILLIS && (millis < WARMUP_MILLIS || calls < WARMUP_CALLS));
+
+        double[] nanos = new double[rounds];
+        for (int i = 0; i < rounds; ++i)
+            nanos[i] = round.run();
+        return new CheckResult(calls, millis, nanos);
+    }
+
+    /**
+     * Writes the results of {@link #runSuites(IPacManController, int)} as CSV, one line per check.
+     */
+    public static void writeCSV(Map<String, CheckResult> results, PrintStream out) {
+        out.println("check;warmupCalls;warmupMs;rounds;meanNs;minNs;maxNs");
+        for (Map.Entry<String, CheckResult> entry : results.entrySet()) {
+            CheckResult result = entry.getValue();
+            double[] r = summary(result.nanos);
+            out.println(String.format(Locale.ROOT, "%s;%d;%d;%d;%.3f;%.3f;%.3f", entry.getKey(), result.warmupCalls,
+                                      result.warmupMillis, result.nanos.length, r[0], r[1], r[2]));
+        }
+    }
+
+    /**
+     * Writes the results of {@link #runSuites(IPacManController, int)} as a JSON object.
+     */
+    public static void writeJSON(Map<String, CheckResult> results, String agent, PrintStream out) {
+        out.println("{");
+        out.println("  \"java\": \"" + System.getProperty("java.version") + "\",");
+        out.println("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",");
+        out.println("  \"agent\": " + (agent == null ? "null" : "\"" + agent + "\"") + ",");
+        out.println("  \"checks\": {");
+        int i = 0;
+        for (Map.Entry<String, CheckResult> entry : results.entrySet()) {
+            CheckResult result = entry.getValue();
+            double[] r = summary(result.nanos);
+            out.print(String.format(Locale.ROOT,
+                                    "    \"%s\": {\"warmupCalls\": %d, \"warmupMs\": %d, \"rounds\": %d, " +
+                                    "\"meanNs\": %.3f, \"minNs\": %.3f, \"maxNs\": %.3f}",
+                                    entry.getKey(), result.warmupCalls, result.warmupMillis, result.nanos.length,
+                                    r[0], r[1], r[2]));
+            out.println(++i < results.size() ? "," : "");
+        }
+        out.println("  }");
+        out.println("}");
+    }
 
-    public void CheckCopy(Game game) {
+    // mean, min, max
+    private static double[] summary(double[] values) {
+        double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (double v : values) {
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        return new double[] { sum / values.length, min, max };
+    }
+
+
+    public double CheckCopy(Game game) {
         int iterations = 1000;
-        long totalTime = 0;
+        long checksum = 0;
 
+        long startTime = System.nanoTime();
         for (int i = 0; i < iterations; i++) {
-            long startTime = System.nanoTime(); 
-            Game copy = game.copy();            
-            long endTime = System.nanoTime();   
-            
-            totalTime += (endTime - startTime); 
+            Game copy = game.copy();
+            checksum += copy.getTotalTime();
         }
-        double averageTime = (double) totalTime / iterations;
-        System.out.println("Average time to copy game: " + averageTime + " ns");
+        long endTime = System.nanoTime();
+
+        double averageTime = (double) (endTime - startTime) / iterations;
+        sink += checksum;
+        return averageTime;
     }
 
-    public void CheckAdvance(Game game) {
+    public double CheckCopyInto(Game game) {
         int iterations = 1000;
-        long totalTime = 0;
+        long checksum = 0;
+        Game target = game.copy();
 
+        long startTime = System.nanoTime();
         for (int i = 0; i < iterations; i++) {
-            long startTime = System.nanoTime(); 
+            game.copyInto(target);
+            checksum += target.getTotalTime();
+        }
+        long endTime = System.nanoTime();
 
+        double averageTime = (double) (endTime - startTime) / iterations;
+        sink += checksum;
+        return averageTime;
+    }
+
+    public double CheckAdvance(Game game) {
+        int iterations = 1000;
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
             int direction = game.getCurPacManDir();
 
             // int[] directions=game.getPossiblePacManDirs(false);
             // int direction = directions[game.rand().nextInt(directions.length)];
 
             game.advanceGame(direction);
-            long endTime = System.nanoTime();   
-            
-            totalTime += (endTime - startTime); 
         }
-        double averageTime = (double) totalTime / iterations;
-        System.out.println("Average time to advance game: " + averageTime + " ns");
+        long endTime = System.nanoTime();
+
+        double averageTime = (double) (endTime - startTime) / iterations;
+        sink += game.getScore() + game.getTotalTime();
+        return averageTime;
     }
 
-    public void CheckAStar(IPacManController pacManController, Game game, long due) {
-        int iterations = 1000;
+    public double CheckPathDistance(Game game) {
+        int lookups = 10000000;
+        int pairs = 1 << 16;
+        int numNodes = game.getNumberOfNodes();
+
+        // random node pairs, so that the lookups touch the whole distance table
+        Random rnd = new Random(0);
+        int[] from = new int[pairs], to = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            from[i] = rnd.nextInt(numNodes);
+            to[i] = rnd.nextInt(numNodes);
+        }
+
+        long checksum = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < lookups; i++)
+            checksum += game.getPathDistance(from[i & (pairs - 1)], to[i & (pairs - 1)]);
+        long endTime = System.nanoTime();
+
+        double averageTime = (double) (endTime - startTime) / lookups;
+        sink += checksum;    // keeps the lookups from being optimised away
+        return averageTime;
+    }
+
+    /**
+     * Round-trip latency of handing a tick to a {@link ThinkingThread} and getting the result back, with a method
+     * that does no work; this is the overhead the simulator pays per controller and frame.
+     */
+    public double CheckHandoff() {
+        int warmup = 10000;
+        int iterations = 100000;
+        ThinkingThread thread = new ThinkingThread("HANDOFF", new IThinkingMethod() {
+            @Override
+            public void think() {
+            }
+        });
+
+        try {
+            for (int i = 0; i < warmup; i++) {
+                thread.startThinking();
+                thread.waitForResult(Long.MAX_VALUE);
+            }
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                thread.startThinking();
+                thread.waitForResult(Long.MAX_VALUE);
+            }
+            long endTime = System.nanoTime();
+
+            double averageTime = (double) (endTime - startTime) / iterations;
+            return averageTime;
+        } finally {
+            thread.kill();
+        }
+    }
+
+    /**
+     * The same round trip as {@link #CheckHandoff()}, with a {@link WaitNotifyThread} (the synchronized wait/notify
+     * handoff that ThinkingThread used before) for reference.
+     */
+    public double CheckWaitNotifyHandoff() {
+        int warmup = 10000;
+        int iterations = 100000;
+        WaitNotifyThread thread = new WaitNotifyThread("HANDOFF-WAIT-NOTIFY");
+
+        try {
+            for (int i = 0; i < warmup; i++) {
+                thread.startThinking();
+                thread.waitForResult();
+            }
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                thread.startThinking();
+                thread.waitForResult();
+            }
+            long endTime = System.nanoTime();
+
+            double averageTime = (double) (endTime - startTime) / iterations;
+            return averageTime;
+        } finally {
+            thread.kill();
+        }
+    }
+
+    /*
+     * A thread that does no work when handed a tick, handing it over with monitor wait/notify as ThinkingThread did
+     * before it moved to park/unpark (without the deadline, which the checks do not use).
+     */
+    private static final class WaitNotifyThread extends Thread {
+        private boolean thinking = false;
+        private boolean alive = true;
+
+        WaitNotifyThread(String name) {
+            super(name);
+            setDaemon(true);
+            start();
+        }
+
+        synchronized void kill() {
+            alive = false;
+            notify();
+        }
+
+        synchronized void startThinking() {
+            if (!thinking) {
+                thinking = true;
+                notify();
+            }
+        }
+
+        synchronized void waitForResult() {
+            while (thinking) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                synchronized (this) {
+                    while (alive && !thinking)
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+
+                    if (!alive)
+                        return;
+                }
+
+                synchronized (this) {
+                    thinking = false;
+                    notify();
+                }
+            }
+        }
+    }
+
+    /**
+     * Ticks of the controller on copies of the game without a deadline (as in lockstep mode), so that an agent that
+     * searches until its deadline is measured by the work of a tick rather than by the think time.
+     */
+    public double CheckAStar(IPacManController pacManController, Game game) {
+        int iterations = AGENT_TICKS;
         long totalTime = 0;
 
         for (int i = 0; i < iterations; i++) {
             long startTime = System.nanoTime(); 
-            pacManController.tick(game.copy(), due);
+            pacManController.tick(game.copy(), SimulatorConfig.NO_DEADLINE);
             long endTime = System.nanoTime();  
             
             totalTime += (endTime - startTime); 
         }
         double averageTime = (double) totalTime / iterations;
-        System.out.println("Average time for A*: " + averageTime + " ns");
+        return averageTime;
     }
 
 
@@ -19,4 +19,49 @@ public class SimulatorConfig {
 	 * DEFAULT: 25 FPS
 	 */
 	public int thinkTimeMillis = 40;
+	
+	/**
+	 * If true, the controllers are not given their own threads: every frame, the simulator calls the PacMan controller
+	 * (on a copy of the game) and then the ghost controller, and advances the game as soon as both return. There is no
+	 * wall-clock deadline, so {@link #NO_DEADLINE} is passed as timeDue; a controller must bound its thinking by its
+	 * own budget (e.g., a number of iterations or simulated steps). Headless games then run as fast as the controllers
+	 * allow and are reproducible regardless of machine load. If {@link #visualize}, frames are still shown at
+	 * {@link #thinkTimeMillis} intervals.
+	 * 
+	 * DEFAULT: false
+	 */
+	public boolean lockstep = false;
+	
+	/**
+	 * If true, the controllers think on virtual threads rather than on OS threads of their own, and parallel
+	 * tournament games (see tournament.EvaluateAgent) are run on virtual threads as well; a large number of games can
+	 * then share the cores. The controllers' deadlines are still wall-clock deadlines, so running many more games than
+	 * there are cores may make them miss their deadlines.
+	 * 
+	 * DEFAULT: false
+	 */
+	public boolean virtualThreads = false;
+	
+	/**
+	 * The timeDue given to controllers in {@link #lockstep} mode.
+	 */
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+	
+	/**
+	 * Returns a configuration for another game: the game configuration is cloned and the ghost controller is copied,
+	 * so that the two games can run at the same time. The PacMan controller is shared; set a fresh instance if needed.
+	 */
+	public SimulatorConfig clone() {
+		SimulatorConfig result = new SimulatorConfig();
+		
+		result.game = game.clone();
+		result.visualize = visualize;
+		result.pacManController = pacManController;
+		result.ghostsController = ghostsController == null ? null : ghostsController.copy();
+		result.thinkTimeMillis = thinkTimeMillis;
+		result.lockstep = lockstep;
+		result.virtualThreads = virtualThreads;
+		
+		return result;
+	}
 }
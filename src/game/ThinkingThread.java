@@ -1,67 +1,153 @@
 package game;
 
-class ThinkingThread extends Thread 
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Runs a controller's thinking on its own thread. The simulator hands over a tick with startThinking() and
+ * collects it with waitForResult(-); both sides communicate through volatile fields and wake each other with
+ * LockSupport.park/unpark instead of monitor wait/notify.
+ *
+ * Before parking, each side spins for a short window, which saves the cost of a park/unpark pair when the other
+ * side answers quickly. The window adapts: it doubles whenever spinning paid off and halves whenever it did not,
+ * so threads that are rarely answered in time hardly spin at all. There is no spinning on a single processor,
+ * where it would only take time away from the thread being waited for.
+ *
+ * The thinking may run on a virtual thread, so that many games can run at once without an OS thread per
+ * controller. Virtual threads (on either side) never spin: that would hold on to a carrier thread that other
+ * games could use.
+ */
+class ThinkingThread implements Runnable
 {
-	private boolean thinking = false;
-    private IThinkingMethod method;
-    private boolean alive;
-    
-    public ThinkingThread(String name, IThinkingMethod method) 
+	private static final long MAX_SPIN_NANOS = Runtime.getRuntime().availableProcessors() > 1 ? 50_000 : 0;
+	private static final long MIN_SPIN_NANOS = Math.min(1_000, MAX_SPIN_NANOS);
+
+	private volatile boolean thinking = false;
+	private volatile boolean alive = true;
+	private volatile Thread waiter;		// the thread parked in waitForResult(), if any
+
+    private final IThinkingMethod method;
+    private final Thread thread;
+
+    // spin windows of the waiting thread and of this thread; each is only touched by its own side
+    private long waiterSpinNanos = MAX_SPIN_NANOS;
+    private long thinkerSpinNanos = MAX_SPIN_NANOS;
+
+    public ThinkingThread(String name, IThinkingMethod method)
+    {
+    	this(name, method, false);
+    }
+
+    public ThinkingThread(String name, IThinkingMethod method, boolean virtual)
     {
-    	super(name);
         this.method = method;
-        alive=true;
-        start();
+        if (virtual)
+            thinkerSpinNanos = 0;
+        this.thread = (virtual ? Thread.ofVirtual() : Thread.ofPlatform()).name(name).unstarted(this);
+        thread.start();
     }
 
-    public synchronized void kill() 
+    public void kill()
     {
-        alive=false;
-        notify();
+        alive = false;
+        LockSupport.unpark(thread);
     }
-    
-    public synchronized void startThinking()
+
+    public void startThinking()
     {
         if (!thinking) {
             thinking = true;
-            notify();
+            LockSupport.unpark(thread);
         }
     }
 
-    public synchronized boolean waitForResult(long until) {
-        while (thinking && System.currentTimeMillis() < until) {
-            try {
-                wait(until - System.currentTimeMillis());
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+    /**
+     * Waits until the thinking is done or the time 'until' (in millis, as System.currentTimeMillis()) has come;
+     * Long.MAX_VALUE waits without a time limit. Returns whether the thinking is done.
+     */
+    public boolean waitForResult(long until) {
+        if (!thinking)
+            return true;
+
+        long deadline = nanoDeadline(until);
+
+        if (!Thread.currentThread().isVirtual()) {
+            long spinEnd = System.nanoTime() + waiterSpinNanos;
+            while (thinking && System.nanoTime() - spinEnd < 0)
+                Thread.onSpinWait();
+
+            if (!thinking) {
+                waiterSpinNanos = grow(waiterSpinNanos);
+                return true;
+            }
+            waiterSpinNanos = shrink(waiterSpinNanos);
+        }
+
+        // publish ourselves before checking again, so that the thinker either sees us or we see it is done
+        waiter = Thread.currentThread();
+        try {
+            while (thinking) {
+                if (deadline == Long.MAX_VALUE)
+                    LockSupport.park(this);
+                else {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0)
+                        break;
+                    LockSupport.parkNanos(this, left);
+                }
+                if (Thread.interrupted())
+                    throw new RuntimeException(new InterruptedException());
             }
+        } finally {
+            waiter = null;
         }
         return !thinking;
     }
 
-    public void run() 
+    @Override
+    public void run()
     {
         while (true) {
             // Wait until we should think.
-            synchronized (this) {
-                while (alive && !thinking)
-                    try {
-                        wait();
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-
-                if (!alive)
-                    return;
-            }
+            long spinEnd = System.nanoTime() + thinkerSpinNanos;
+            while (alive && !thinking && System.nanoTime() - spinEnd < 0)
+                Thread.onSpinWait();
+
+            if (!thread.isVirtual())
+                thinkerSpinNanos = thinking ? grow(thinkerSpinNanos) : shrink(thinkerSpinNanos);
+
+            while (alive && !thinking)
+                LockSupport.park(this);
+
+            if (!alive)
+                return;
 
             method.think();
 
             // Report that we are done.
-            synchronized (this) {
-                thinking = false;
-                notify();
-            }
+            thinking = false;
+            Thread w = waiter;
+            if (w != null)
+                LockSupport.unpark(w);
         }
     }
+
+    // converts a deadline in System.currentTimeMillis() to one in System.nanoTime()
+    private static long nanoDeadline(long until) {
+        if (until == Long.MAX_VALUE)
+            return Long.MAX_VALUE;
+
+        long leftMillis = until - System.currentTimeMillis();
+        if (leftMillis > Long.MAX_VALUE / 2_000_000)
+            return Long.MAX_VALUE;
+
+        return System.nanoTime() + leftMillis * 1_000_000;
+    }
+
+    private static long grow(long spinNanos) {
+        return Math.min(MAX_SPIN_NANOS, Math.max(MIN_SPIN_NANOS, 2 * spinNanos));
+    }
+
+    private static long shrink(long spinNanos) {
+        return Math.max(MIN_SPIN_NANOS, spinNanos / 2);
+    }
 }
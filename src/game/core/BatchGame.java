@@ -0,0 +1,775 @@
+package game.core;
+
+import game.GameConfig;
+import controllers.ghosts.GhostsActions;
+
+/*
+ * A batch of independent games ("lanes") held in struct-of-arrays form, all advanced by one tick per call of
+ * advance(-), for rollout-heavy searches and offline evaluation. A lane is loaded from a game and stored back
+ * into one; in between, every tick has exactly the effect of G.advanceGame(int,GhostsActions) on that game with
+ * the same directions (including its random numbers: every lane owns a copy of its game's generator).
+ *
+ * The state of lane l is at index l of the per-lane arrays and at 4*l+g for ghost g; its pills are the bits of
+ * pillWords longs starting at pillWords*l (pill i is bit i%64 of the word i/64), its power pills the bits of one
+ * long. Only the state the tick needs is kept, so a tick does not maintain the derived state of G (the list of
+ * active pills, the distances to the nearest pill or the hash); store(-) rebuilds it.
+ *
+ * The common tick (moving the characters, eating pills and ghosts, the fruit) runs inline. The ticks that may end
+ * the level or continue a game that is over are rare and are played by a scratch G instead (store, advanceGame,
+ * load), so that the inline code does not have to reproduce setting up a new level.
+ *
+ * Each call runs in three passes over the lanes: the branchy part of the tick per lane, then the countdowns (the
+ * edible and lair times and the clocks) as flat loops over the arrays that the JIT can vectorize, and at last
+ * the ghosts eaten and lives lost, which a simulated game (see G.isSimulation()) resolves within the same tick.
+ */
+public final class BatchGame
+{
+	private final int size;
+	private int pillWords;
+	private int[][] tunnels;	//per maze, the nodes at its left and right edges, where fruits appear
+
+	//per lane
+	private final GameConfig[] configs;
+	private final GameRandom[] rnds;
+	private final boolean[] simulation,gameOver,extraLife;
+	private final int[] remainingLevels,curMaze,totLevel,levelTime,totalTime,score,ghostEatMultiplier;
+	private final int[] pacManLoc,pacManDir,livesRemaining;
+	private final int[] fruitLoc,fruitType,fruitDir,fruitsLeft,ateFruitTime,ateFruitLoc,ateFruitType;
+	private final int[] eatingGhost,eatingTime,eatingScore,dyingTime;
+	private final int[] numActivePills,numActivePowerPills;
+	private long[] pills;
+	private final long[] powerPills;
+
+	//per ghost
+	private final int[] ghostLocs,ghostDirs,edibleTimes,lairTimes,lairX,lairY;
+
+	//1 for the lanes (ghosts) that ticked inline in the current call, 0 otherwise
+	private final int[] laneSteps,ghostSteps;
+
+	//all of the int arrays above, for copyInto(-)
+	private final int[][] ints;
+
+	//scratch games for the ticks played by G, with the semantics of G and of _G_ respectively
+	private G simulated,live;
+	private GhostsActions actions;
+
+	public BatchGame(int size)
+	{
+		this.size=size;
+
+		configs=new GameConfig[size];
+		rnds=new GameRandom[size];
+		simulation=new boolean[size];
+		gameOver=new boolean[size];
+		extraLife=new boolean[size];
+		remainingLevels=new int[size];
+		curMaze=new int[size];
+		totLevel=new int[size];
+		levelTime=new int[size];
+		totalTime=new int[size];
+		score=new int[size];
+		ghostEatMultiplier=new int[size];
+		pacManLoc=new int[size];
+		pacManDir=new int[size];
+		livesRemaining=new int[size];
+		fruitLoc=new int[size];
+		fruitType=new int[size];
+		fruitDir=new int[size];
+		fruitsLeft=new int[size];
+		ateFruitTime=new int[size];
+		ateFruitLoc=new int[size];
+		ateFruitType=new int[size];
+		eatingGhost=new int[size];
+		eatingTime=new int[size];
+		eatingScore=new int[size];
+		dyingTime=new int[size];
+		numActivePills=new int[size];
+		numActivePowerPills=new int[size];
+		powerPills=new long[size];
+
+		ghostLocs=new int[Game.NUM_GHOSTS*size];
+		ghostDirs=new int[Game.NUM_GHOSTS*size];
+		edibleTimes=new int[Game.NUM_GHOSTS*size];
+		lairTimes=new int[Game.NUM_GHOSTS*size];
+		lairX=new int[Game.NUM_GHOSTS*size];
+		lairY=new int[Game.NUM_GHOSTS*size];
+
+		ints=new int[][]{remainingLevels,curMaze,totLevel,levelTime,totalTime,score,ghostEatMultiplier,pacManLoc,
+				pacManDir,livesRemaining,fruitLoc,fruitType,fruitDir,fruitsLeft,ateFruitTime,ateFruitLoc,ateFruitType,
+				eatingGhost,eatingTime,eatingScore,dyingTime,numActivePills,numActivePowerPills,ghostLocs,ghostDirs,
+				edibleTimes,lairTimes,lairX,lairY};
+
+		laneSteps=new int[size];
+		ghostSteps=new int[Game.NUM_GHOSTS*size];
+	}
+
+	//Number of lanes
+	public int size()
+	{
+		return size;
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	//////////////////////////  Loading and Storing  ////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	//Puts lane into the state of the game
+	public void load(int lane,Game game)
+	{
+		G g=(G)game;
+
+		if(pills==null)
+		{
+			//the mazes have been loaded by the game
+			int maxPills=0;
+			for(Maze maze : G.mazes)
+				maxPills=Math.max(maxPills,maze.pillIndices.length);
+			pillWords=(maxPills+63)/64;
+			pills=new long[pillWords*size];
+			
+			tunnels=new int[G.mazes.length][];
+			for(int i=0;i<G.mazes.length;i++)
+				tunnels[i]=findTunnels(G.mazes[i]);
+		}
+
+		configs[lane]=g.config;
+		if(rnds[lane]==null)
+			rnds[lane]=g.rnd.copy();
+		else
+			g.rnd.copyInto(rnds[lane]);
+		simulation[lane]=g.isSimulation();
+		gameOver[lane]=g.gameOver;
+		extraLife[lane]=g.extraLife;
+		remainingLevels[lane]=g.remainingLevels;
+		curMaze[lane]=g.curMaze;
+		totLevel[lane]=g.totLevel;
+		levelTime[lane]=g.levelTime;
+		totalTime[lane]=g.totalTime;
+		score[lane]=g.score;
+		ghostEatMultiplier[lane]=g.ghostEatMultiplier;
+		pacManLoc[lane]=g.curPacManLoc;
+		pacManDir[lane]=g.lastPacManDir;
+		livesRemaining[lane]=g.livesRemaining;
+		fruitLoc[lane]=g.fruitLoc;
+		fruitType[lane]=g.fruitType;
+		fruitDir[lane]=g.fruitDir;
+		fruitsLeft[lane]=g.fruitsLeft;
+		ateFruitTime[lane]=g.ateFruitTime;
+		ateFruitLoc[lane]=g.ateFruitLoc;
+		ateFruitType[lane]=g.ateFruitType;
+		eatingGhost[lane]=g.eatingGhost;
+		eatingTime[lane]=g.eatingTime;
+		eatingScore[lane]=g.eatingScore;
+		dyingTime[lane]=g.dyingTime;
+		numActivePills[lane]=g.numActivePills;
+		numActivePowerPills[lane]=g.numActivePowerPills;
+		powerPills[lane]=g.getPillBits(pills,pillWords*lane);
+
+		int k=Game.NUM_GHOSTS*lane;
+		System.arraycopy(g.curGhostLocs,0,ghostLocs,k,Game.NUM_GHOSTS);
+		System.arraycopy(g.lastGhostDirs,0,ghostDirs,k,Game.NUM_GHOSTS);
+		System.arraycopy(g.edibleTimes,0,edibleTimes,k,Game.NUM_GHOSTS);
+		System.arraycopy(g.lairTimes,0,lairTimes,k,Game.NUM_GHOSTS);
+		System.arraycopy(g.lairX,0,lairX,k,Game.NUM_GHOSTS);
+		System.arraycopy(g.lairY,0,lairY,k,Game.NUM_GHOSTS);
+	}
+
+	//Puts the game into the state of the lane (its ghost controller, if any, is left as it is)
+	public void store(int lane,Game game)
+	{
+		G g=(G)game;
+
+		g.config=configs[lane];
+		if(g.rnd==null)
+			g.rnd=rnds[lane].copy();
+		else
+			rnds[lane].copyInto(g.rnd);
+		g.gameOver=gameOver[lane];
+		g.extraLife=extraLife[lane];
+		g.remainingLevels=remainingLevels[lane];
+		g.curMaze=curMaze[lane];
+		g.totLevel=totLevel[lane];
+		g.levelTime=levelTime[lane];
+		g.totalTime=totalTime[lane];
+		g.score=score[lane];
+		g.ghostEatMultiplier=ghostEatMultiplier[lane];
+		g.curPacManLoc=pacManLoc[lane];
+		g.lastPacManDir=pacManDir[lane];
+		g.livesRemaining=livesRemaining[lane];
+		g.fruitLoc=fruitLoc[lane];
+		g.fruitType=fruitType[lane];
+		g.fruitDir=fruitDir[lane];
+		g.fruitsLeft=fruitsLeft[lane];
+		g.ateFruitTime=ateFruitTime[lane];
+		g.ateFruitLoc=ateFruitLoc[lane];
+		g.ateFruitType=ateFruitType[lane];
+		g.eatingGhost=eatingGhost[lane];
+		g.eatingTime=eatingTime[lane];
+		g.eatingScore=eatingScore[lane];
+		g.dyingTime=dyingTime[lane];
+		g.setPillBits(pills,pillWords*lane,powerPills[lane]);
+
+		int k=Game.NUM_GHOSTS*lane;
+		g.curGhostLocs=copyGhosts(ghostLocs,k,g.curGhostLocs);
+		g.lastGhostDirs=copyGhosts(ghostDirs,k,g.lastGhostDirs);
+		g.edibleTimes=copyGhosts(edibleTimes,k,g.edibleTimes);
+		g.lairTimes=copyGhosts(lairTimes,k,g.lairTimes);
+		g.lairX=copyGhosts(lairX,k,g.lairX);
+		g.lairY=copyGhosts(lairY,k,g.lairY);
+	}
+
+	//The nodes at the left and right edges of the maze, in the order G.updateFruit() finds them
+	private static int[] findTunnels(Maze maze)
+	{
+		int count=0;
+		for(int i=0;i<maze.numNodes;i++)
+			if(maze.x[i]==0 || maze.x[i]==108)
+				count++;
+		
+		int[] nodes=new int[count];
+		count=0;
+		for(int i=0;i<maze.numNodes;i++)
+			if(maze.x[i]==0 || maze.x[i]==108)
+				nodes[count++]=i;
+		
+		return nodes;
+	}
+
+	private static int[] copyGhosts(int[] src,int offset,int[] dst)
+	{
+		if(dst==null || dst.length!=Game.NUM_GHOSTS)
+			dst=new int[Game.NUM_GHOSTS];
+
+		System.arraycopy(src,offset,dst,0,Game.NUM_GHOSTS);
+		return dst;
+	}
+
+	//Puts the target batch (of the same size) into exactly the same state as this one
+	public void copyInto(BatchGame target)
+	{
+		if(target.size!=size)
+			throw new IllegalArgumentException("Batch of "+target.size+" games instead of "+size);
+		if(target==this)
+			return;
+
+		for(int lane=0;lane<size;lane++)
+		{
+			target.configs[lane]=configs[lane];
+			if(rnds[lane]==null)
+				target.rnds[lane]=null;
+			else if(target.rnds[lane]==null)
+				target.rnds[lane]=rnds[lane].copy();
+			else
+				rnds[lane].copyInto(target.rnds[lane]);
+		}
+		System.arraycopy(simulation,0,target.simulation,0,size);
+		System.arraycopy(gameOver,0,target.gameOver,0,size);
+		System.arraycopy(extraLife,0,target.extraLife,0,size);
+		for(int i=0;i<ints.length;i++)
+			System.arraycopy(ints[i],0,target.ints[i],0,ints[i].length);
+		System.arraycopy(powerPills,0,target.powerPills,0,size);
+		if(pills!=null)
+		{
+			if(target.pills==null || target.pills.length!=pills.length)
+				target.pills=new long[pills.length];
+			target.pillWords=pillWords;
+			target.tunnels=tunnels;
+			System.arraycopy(pills,0,target.pills,0,pills.length);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////  Game Play   ////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	/*
+	 * Advances every lane by one tick: Ms Pac-Man of lane l moves in pacManDirs[l] and its ghost g in
+	 * ghostDirs[4*l+g] (a direction, or -1 to keep going), as advanceGame(int,GhostsActions) of its game does with
+	 * the actions of all four ghosts. If ghostDirs is null, no lane has ghost actions (the ghosts stay put, as
+	 * advanceGame(-) does for null actions). Every lane must have been loaded.
+	 */
+	public void advance(int[] pacManDirs,int[] ghostDirs)
+	{
+		//the branchy part of the tick, lane by lane
+		for(int lane=0;lane<size;lane++)
+		{
+			if(needsScalarTick(lane))
+			{
+				scalarTick(lane,pacManDirs[lane],ghostDirs);
+				setSteps(lane,0);
+			}
+			else if(actionPaused(lane))
+				setSteps(lane,0);
+			else
+			{
+				tick(lane,pacManDirs[lane],ghostDirs);
+				setSteps(lane,1);
+			}
+		}
+
+		//the countdowns of the lanes that ticked inline (edible and lair times are never negative)
+		for(int k=0;k<ghostSteps.length;k++)
+			edibleTimes[k]=Math.max(edibleTimes[k]-ghostSteps[k],0);
+
+		if(ghostDirs!=null)
+			for(int k=0;k<ghostSteps.length;k++)
+				lairTimes[k]=Math.max(lairTimes[k]-ghostSteps[k],0);
+
+		for(int lane=0;lane<size;lane++)
+		{
+			totalTime[lane]+=laneSteps[lane];
+			levelTime[lane]+=laneSteps[lane];
+		}
+
+		//a simulated game resolves eating a ghost and losing a life at once
+		for(int lane=0;lane<size;lane++)
+			if(laneSteps[lane]!=0 && simulation[lane])
+			{
+				if(eatingTime[lane]>0)
+				{
+					eatingTime[lane]=0;
+					eat(lane);
+				}
+				if(dyingTime[lane]>0)
+				{
+					dyingTime[lane]=0;
+					die(lane);
+				}
+			}
+	}
+
+	private void setSteps(int lane,int step)
+	{
+		laneSteps[lane]=step;
+		for(int g=0;g<Game.NUM_GHOSTS;g++)
+			ghostSteps[Game.NUM_GHOSTS*lane+g]=step;
+	}
+
+	//Whether the game is over or the tick may end the level (at most one pill is eaten per tick)
+	private boolean needsScalarTick(int lane)
+	{
+		return gameOver[lane] || numActivePills[lane]+numActivePowerPills[lane]<=1 || levelTime[lane]+1>=Game.LEVEL_LIMIT;
+	}
+
+	private void scalarTick(int lane,int pacManDir,int[] ghostDirs)
+	{
+		G game;
+		if(simulation[lane])
+			game=simulated==null ? (simulated=new G()) : simulated;
+		else
+			game=live==null ? (live=new _G_()) : live;
+
+		store(lane,game);
+
+		GhostsActions ghosts=null;
+		if(ghostDirs!=null)
+		{
+			if(actions==null)
+				actions=new GhostsActions(Game.NUM_GHOSTS);
+			for(int g=0;g<Game.NUM_GHOSTS;g++)
+			{
+				int dir=ghostDirs[Game.NUM_GHOSTS*lane+g];
+				actions.actions[g].set(dir>=0 && dir<=3 ? dir : -1);
+			}
+			ghosts=actions;
+		}
+
+		game.advanceGame(pacManDir,ghosts);
+		load(lane,game);
+	}
+
+	//As G.actionPaused()
+	private boolean actionPaused(int lane)
+	{
+		if(eatingTime[lane]>0)
+		{
+			if(--eatingTime[lane]==0)
+				eat(lane);
+			return true;
+		}
+
+		if(dyingTime[lane]>0)
+		{
+			if(--dyingTime[lane]==0)
+				die(lane);
+			return true;
+		}
+
+		return false;
+	}
+
+	//Everything G.advanceGame(-) does, up to the countdowns
+	private void tick(int lane,int dir,int[] ghostDirs)
+	{
+		Maze maze=G.mazes[curMaze[lane]];
+		int[] neighbours=maze.neighbours;
+
+		//move pac-man (G.checkPacManDir: the direction if legal, otherwise the last one if legal, otherwise none)
+		int loc=pacManLoc[lane];
+		int lastDir=pacManDir[lane];
+		if(dir<0 || dir>3 || neighbours[4*loc+dir]==-1)
+			dir=lastDir<0 || lastDir>3 || neighbours[4*loc+lastDir]==-1 ? 4 : lastDir;
+		pacManDir[lane]=dir;
+		if(dir!=4)
+			pacManLoc[lane]=loc=neighbours[4*loc+dir];
+
+		//eat a pill
+		int pillIndex=maze.pillIndex[loc];
+		if(pillIndex>=0)
+		{
+			int word=pillWords*lane+(pillIndex>>>6);
+			long bit=1L<<pillIndex;
+			if((pills[word]&bit)!=0)
+			{
+				pills[word]&=~bit;
+				numActivePills[lane]--;
+				score[lane]+=Game.PILL;
+			}
+		}
+
+		//eat a power pill
+		boolean reverse=false;
+		int powerPillIndex=maze.powerPillIndex[loc];
+		if(powerPillIndex>=0 && (powerPills[lane]&1L<<powerPillIndex)!=0)
+		{
+			powerPills[lane]&=~(1L<<powerPillIndex);
+			numActivePowerPills[lane]--;
+			score[lane]+=Game.POWER_PILL;
+			ghostEatMultiplier[lane]=1;
+
+			int newEdibleTime=(int)(Game.EDIBLE_TIME*(Math.pow(Game.EDIBLE_TIME_REDUCTION,totLevel[lane]-1)));
+			for(int g=0;g<Game.NUM_GHOSTS;g++)
+				edibleTimes[Game.NUM_GHOSTS*lane+g]=newEdibleTime;
+
+			reverse=true;
+		}
+		else if(levelTime[lane]>1 && rnds[lane].nextDouble()<Game.GHOST_REVERSAL)
+			reverse=true;
+
+		if(ghostDirs!=null)
+			updateGhosts(lane,maze,ghostDirs,reverse);
+
+		feast(lane,maze);
+		updateFruit(lane,maze,tunnels[curMaze[lane]]);
+
+		if(!extraLife[lane] && score[lane]>=Game.EXTRA_LIFE_SCORE)
+		{
+			extraLife[lane]=true;
+			livesRemaining[lane]++;
+		}
+	}
+
+	//As G.updateGhosts(-)
+	private void updateGhosts(int lane,Maze maze,int[] dirs,boolean reverse)
+	{
+		int[] neighbours=maze.neighbours;
+		int lairPosition=maze.lairPosition;
+		int lairX0=maze.x[lairPosition],lairY0=maze.y[lairPosition];
+		boolean lairMove=totalTime[lane]%2==0;
+
+		for(int g=0;g<Game.NUM_GHOSTS;g++)
+		{
+			int k=Game.NUM_GHOSTS*lane+g;
+			int loc=ghostLocs[k],lastDir=ghostDirs[k];
+
+			if(loc==lairPosition)
+			{
+				if(lairMove)
+				{
+					lairX[k]+=G.DX[lastDir];
+					lairY[k]+=G.DY[lastDir];
+					if(lairY[k]<=lairY0-11)		//exited lair
+					{
+						ghostLocs[k]=maze.initialGhostsPosition;
+						ghostDirs[k]=Game.INITIAL_GHOST_DIRS[g];
+					}
+					else if(lairTimes[k]>0)
+					{
+						if(lairY[k]==lairY0+4)
+							ghostDirs[k]=Game.UP;
+						else if(lairY[k]==lairY0)
+							ghostDirs[k]=Game.DOWN;
+					}
+					else						//time to leave
+						ghostDirs[k]=lairX[k]<lairX0+8 ? Game.RIGHT : lairX[k]>lairX0+8 ? Game.LEFT : Game.UP;
+				}
+			}
+			else if(reverse)
+			{
+				int dir=reverse(lastDir);
+				ghostDirs[k]=dir;
+				if(dir!=4)
+					ghostLocs[k]=neighbours[4*loc+dir];
+			}
+			else if(edibleTimes[k]==0 || edibleTimes[k]%Game.GHOST_SPEED_REDUCTION!=0)
+			{
+				//G.checkGhostDir(-): the direction if legal and not back, otherwise the last one if legal,
+				//otherwise the first legal one that is not back
+				int dir=dirs[k];
+				if(dir<0 || dir>3)
+					dir=lastDir;
+				int back=reverse(lastDir);
+				if(dir==back || neighbours[4*loc+dir]==-1)
+				{
+					if(neighbours[4*loc+lastDir]!=-1)
+						dir=lastDir;
+					else
+						for(dir=0;dir<4;dir++)
+							if(dir!=back && neighbours[4*loc+dir]!=-1)
+								break;
+				}
+				ghostDirs[k]=dir;
+				ghostLocs[k]=neighbours[4*loc+dir];
+			}
+		}
+	}
+
+	//As G.feast(), except for counting down the edible times
+	private void feast(int lane,Maze maze)
+	{
+		int loc=pacManLoc[lane];
+		int y=maze.y[loc];
+
+		for(int g=0;g<Game.NUM_GHOSTS;g++)
+		{
+			int k=Game.NUM_GHOSTS*lane+g;
+			
+			//every move changes y by at most 1, so a ghost further apart vertically is out of reach (and its
+			//distance need not be looked up in the large table of the maze)
+			if(Math.abs(maze.y[ghostLocs[k]]-y)>Game.EAT_DISTANCE)
+				continue;
+			
+			int distance=maze.getDistance(loc,ghostLocs[k]);
+
+			if(distance<=Game.EAT_DISTANCE && distance!=-1)
+			{
+				if(edibleTimes[k]>0)		//pac-man eats ghost
+				{
+					eatingScore[lane]=Game.GHOST_EAT_SCORE*ghostEatMultiplier[lane];
+					eatingGhost[lane]=g;
+					score[lane]+=eatingScore[lane];
+					ghostEatMultiplier[lane]*=2;
+					eatingTime[lane]=12;
+					break;
+				}
+				else						//ghost eats pac-man
+					dyingTime[lane]=20;
+			}
+		}
+	}
+
+	//As G.updateFruit()
+	private void updateFruit(int lane,Maze maze,int[] tunnels)
+	{
+		if(ateFruitTime[lane]>0)
+			--ateFruitTime[lane];
+
+		int loc=fruitLoc[lane];
+		if(loc==-1)
+		{
+			int active=numActivePills[lane];
+			if(maze.pillIndices.length-active==64 && fruitsLeft[lane]==2 || active==66 && fruitsLeft[lane]>0)
+			{
+				if(tunnels.length==0)
+					throw new RuntimeException("can't find any tunnels");
+				
+				fruitLoc[lane]=loc=tunnels[rnds[lane].nextInt(tunnels.length)];
+				fruitType[lane]=totLevel[lane]<=7 ? totLevel[lane]-1 : rnds[lane].nextInt(7);
+				fruitDir[lane]=maze.x[loc]==0 ? Game.RIGHT : Game.LEFT;
+				--fruitsLeft[lane];
+			}
+			return;
+		}
+
+		if(levelTime[lane]%2==0)
+		{
+			//a random direction that is not back (G.getPossibleDirs(-))
+			int lastDir=fruitDir[lane];
+			int back=lastDir<0 || lastDir>3 ? -1 : reverse(lastDir);
+			int choice=rnds[lane].nextInt(maze.numNeighbours[loc]-(back==-1 ? 0 : 1));
+			int dir=0;
+			for(;dir<4;dir++)
+				if(dir!=back && maze.neighbours[4*loc+dir]!=-1 && choice--==0)
+					break;
+
+			fruitDir[lane]=dir;
+			fruitLoc[lane]=loc=maze.neighbours[4*loc+dir];
+			if(maze.x[loc]==0 || maze.x[loc]==108)	//edge of maze: the fruit is gone
+			{
+				fruitLoc[lane]=-1;
+				return;
+			}
+		}
+
+		int distance=maze.getDistance(pacManLoc[lane],loc);
+		if(distance<=Game.EAT_DISTANCE && distance!=-1)
+		{
+			score[lane]+=G.FruitValue[fruitType[lane]];
+			ateFruitTime[lane]=20;
+			ateFruitLoc[lane]=loc;
+			ateFruitType[lane]=fruitType[lane];
+			fruitLoc[lane]=-1;
+		}
+	}
+
+	//As G.eat()
+	private void eat(int lane)
+	{
+		int g=eatingGhost[lane];
+		edibleTimes[Game.NUM_GHOSTS*lane+g]=0;
+		lairTimes[Game.NUM_GHOSTS*lane+g]=(int)(Game.COMMON_LAIR_TIME*(Math.pow(Game.LAIR_REDUCTION,totLevel[lane]-1)));
+		placeInLair(lane,g);
+	}
+
+	//As G.die(), with G.reset(false)
+	private void die(int lane)
+	{
+		if(--livesRemaining[lane]<=0)
+		{
+			gameOver[lane]=true;
+			return;
+		}
+
+		Maze maze=G.mazes[curMaze[lane]];
+		int k=Game.NUM_GHOSTS*lane;
+
+		pacManLoc[lane]=maze.initialPacPosition;
+		pacManDir[lane]=Game.INITIAL_PAC_DIR;
+
+		ghostLocs[k]=maze.initialGhostsPosition;
+		ghostDirs[k]=Game.INITIAL_GHOST_DIRS[0];
+		for(int g=1;g<Game.NUM_GHOSTS;g++)
+			placeInLair(lane,g);
+
+		for(int g=0;g<Game.NUM_GHOSTS;g++)
+			edibleTimes[k+g]=0;
+		ghostEatMultiplier[lane]=1;
+
+		lairTimes[k]=0;
+		for(int g=1;g<Game.NUM_GHOSTS;g++)
+			lairTimes[k+g]=(int)(Game.LAIR_TIMES[g]*(Math.pow(Game.LAIR_REDUCTION,totLevel[lane]-1)));
+
+		eatingTime[lane]=dyingTime[lane]=0;
+		fruitLoc[lane]=-1;
+		ateFruitTime[lane]=0;
+	}
+
+	//As G.placeInLair(-)
+	private void placeInLair(int lane,int g)
+	{
+		Maze maze=G.mazes[curMaze[lane]];
+		int k=Game.NUM_GHOSTS*lane+g;
+		int offset=g==2 ? 0 : g==3 ? 2 : 1;
+
+		ghostLocs[k]=maze.lairPosition;
+		lairX[k]=maze.x[maze.lairPosition]+8*offset;
+		lairY[k]=maze.y[maze.lairPosition]+2;
+		ghostDirs[k]=offset==1 ? Game.UP : Game.DOWN;
+	}
+
+	//As G.getReverse(-)
+	private static int reverse(int dir)
+	{
+		return dir<0 || dir>3 ? 4 : dir^2;
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	///////////////////////////  Getter Methods  ////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	public boolean gameOver(int lane)
+	{
+		return gameOver[lane];
+	}
+
+	public int getCurLevel(int lane)
+	{
+		return totLevel[lane];
+	}
+
+	public int getCurMaze(int lane)
+	{
+		return curMaze[lane];
+	}
+
+	public int getLevelTime(int lane)
+	{
+		return levelTime[lane];
+	}
+
+	public int getTotalTime(int lane)
+	{
+		return totalTime[lane];
+	}
+
+	public int getScore(int lane)
+	{
+		return score[lane];
+	}
+
+	public int getLivesRemaining(int lane)
+	{
+		return livesRemaining[lane];
+	}
+
+	public int getCurPacManLoc(int lane)
+	{
+		return pacManLoc[lane];
+	}
+
+	public int getCurPacManDir(int lane)
+	{
+		return pacManDir[lane];
+	}
+
+	public int getCurGhostLoc(int lane,int whichGhost)
+	{
+		return ghostLocs[Game.NUM_GHOSTS*lane+whichGhost];
+	}
+
+	public int getCurGhostDir(int lane,int whichGhost)
+	{
+		return ghostDirs[Game.NUM_GHOSTS*lane+whichGhost];
+	}
+
+	public int getEdibleTime(int lane,int whichGhost)
+	{
+		return edibleTimes[Game.NUM_GHOSTS*lane+whichGhost];
+	}
+
+	public int getLairTime(int lane,int whichGhost)
+	{
+		return lairTimes[Game.NUM_GHOSTS*lane+whichGhost];
+	}
+
+	public boolean isSuspended(int lane)
+	{
+		return eatingTime[lane]>0 || dyingTime[lane]>0;
+	}
+
+	public int getNumActivePills(int lane)
+	{
+		return numActivePills[lane];
+	}
+
+	public int getNumActivePowerPills(int lane)
+	{
+		return numActivePowerPills[lane];
+	}
+
+	//Whether the pill (given by its pill index, see Game.getPillIndex(-)) is still there
+	public boolean checkPill(int lane,int pillIndex)
+	{
+		return (pills[pillWords*lane+(pillIndex>>>6)]&1L<<pillIndex)!=0;
+	}
+
+	public boolean checkPowerPill(int lane,int powerPillIndex)
+	{
+		return (powerPills[lane]&1L<<powerPillIndex)!=0;
+	}
+
+	public int getFruitLoc(int lane)
+	{
+		return fruitLoc[lane];
+	}
+}
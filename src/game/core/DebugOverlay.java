@@ -0,0 +1,104 @@
+package game.core;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.ArrayList;
+
+/*
+ * Debugging aids (points, lines and text) drawn over a single game. An overlay is attached to a game by its view
+ * and shared with all copies of that game, so controllers can draw on whatever copy they are given; games without
+ * a view have no overlay and the GameView.add*(-) methods return immediately for them. The lock is per overlay,
+ * so games running in parallel do not contend with each other.
+ *
+ * Everything added is drawn once, by the next repaint of the view, and then discarded.
+ */
+final class DebugOverlay
+{
+	private ArrayList<DebugPointer> debugPointers=new ArrayList<DebugPointer>();
+	private ArrayList<DebugLine> debugLines=new ArrayList<DebugLine>();
+	private ArrayList<DebugText> debugTexts=new ArrayList<DebugText>();
+
+	synchronized void addPoint(int x,int y,Color color)
+	{
+		debugPointers.add(new DebugPointer(x,y,color));
+	}
+
+	synchronized void addLine(int x1,int y1,int x2,int y2,Color color)
+	{
+		debugLines.add(new DebugLine(x1,y1,x2,y2,color));
+	}
+
+	synchronized void addText(int x,int y,Color color,String text)
+	{
+		debugTexts.add(new DebugText(x,y,color,text));
+	}
+
+	//Draws everything added since the last call and clears the overlay
+	synchronized void draw(Graphics g,int mag)
+	{
+		for(DebugPointer dp : debugPointers)
+		{
+			g.setColor(dp.color);
+			g.fillRect(dp.x*mag+1,dp.y*mag+5,10,10);
+		}
+
+		for(DebugLine dl : debugLines)
+		{
+			g.setColor(dl.color);
+			g.drawLine(dl.x1*mag+5,dl.y1*mag+10,dl.x2*mag+5,dl.y2*mag+10);
+		}
+
+		for(DebugText dt : debugTexts)
+		{
+			g.setColor(dt.color);
+			g.drawString(dt.text,dt.x*mag+5,dt.y*mag+10);
+		}
+
+		debugPointers.clear();
+		debugLines.clear();
+		debugTexts.clear();
+	}
+
+	private static class DebugPointer
+	{
+		public int x,y;
+		public Color color;
+
+		public DebugPointer(int x,int y,Color color)
+		{
+			this.x=x;
+			this.y=y;
+			this.color=color;
+		}
+	}
+
+	private static class DebugLine
+	{
+		public int x1,y1,x2,y2;
+		public Color color;
+
+		public DebugLine(int x1,int y1,int x2,int y2,Color color)
+		{
+			this.x1=x1;
+			this.y1=y1;
+			this.x2=x2;
+			this.y2=y2;
+			this.color=color;
+		}
+	}
+
+	private static class DebugText
+	{
+		public int x,y;
+		public Color color;
+		public String text;
+
+		public DebugText(int x,int y,Color color,String text)
+		{
+			this.x=x;
+			this.y=y;
+			this.color=color;
+			this.text=text;
+		}
+	}
+}
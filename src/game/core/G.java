@@ -18,7 +18,6 @@ import controllers.Direction;
 import controllers.ghosts.GhostsActions;
 import controllers.ghosts.IGhostsController;
 
-import java.io.*;
 import java.util.*;
 
 /*
@@ -28,7 +27,7 @@ import java.util.*;
  */
 public class G implements Game
 {	
-    Random rnd = new Random();
+    GameRandom rnd;
     
     static int[] DX = { 0, 1, 0, -1 }, DY = { -1, 0, 1, 0 };
 	
@@ -40,7 +39,49 @@ public class G implements Game
 	protected static Maze[] mazes=new Maze[NUM_MAZES];			
 	
 	//Variables (game state):
-	protected BitSet pills,powerPills;
+	//the active pills as bits (pill i is bit i%64 of pills[i/64]) and the active power pills as the bits of a long
+	protected long[] pills;
+	protected long powerPills;
+	//kept in sync with the bits: the number of active (power) pills and a dense list of the active pill
+	//indices (in no particular order) with the position of every pill index in it, or -1 once eaten. Copies share
+	//the list until one of them eats a pill (copy-on-write). The spares are this game's own earlier arrays and
+	//their token, to copy the shared ones into before changing them
+	protected int numActivePills,numActivePowerPills;
+	protected int[] activePills,activePillPositions,activePillsSpare,activePillPositionsSpare;
+	protected Sharing activePillsSharing,activePillsSharingSpare;
+	//distance from every node to the nearest active pill or power pill (NO_PILL if there is none), shared by copies
+	//in the same way (with spares as well)
+	protected int[] pillDistances,pillDistancesSpare;
+	protected Sharing pillDistancesSharing,pillDistancesSharingSpare;
+	private int[] pillQueue;	//scratch for the distance updates (not copied)
+	static final int NO_PILL=Integer.MAX_VALUE;
+	
+	//Whether the arrays it belongs to are shared by several games, which have to copy them before changing them.
+	//copyInto(-) marks the token of the arrays rather than the game it copies, and the flag only ever goes from
+	//false to true, so several threads may copy the same game at the same time
+	static final class Sharing
+	{
+		private volatile boolean shared;
+		
+		void share()
+		{
+			if(!shared)
+				shared=true;
+		}
+		
+		boolean isShared()
+		{
+			return shared;
+		}
+	}
+	
+	//Zobrist hash of the active pills and power pills, updated as they are eaten (the rest of the hash is
+	//combined from a few fields in getHash())
+	protected long pillHash;
+	
+	//features of the Zobrist hash (ghost features are offset by the ghost's index)
+	private static final int Z_PILL=0,Z_POWER_PILL=1,Z_LEVEL=2,Z_LIVES=3,Z_PACMAN=4,Z_PACMAN_DIR=5,Z_FRUIT=6,
+			Z_FRUIT_TYPE=7,Z_FRUIT_DIR=8,Z_GHOST=16,Z_GHOST_DIR=32,Z_EDIBLE=48,Z_LAIR_X=64,Z_LAIR_Y=80;
 	//level-specific
 	protected int curMaze,totLevel,levelTime,totalTime,score,ghostEatMultiplier;
 	protected boolean gameOver;
@@ -59,6 +100,8 @@ public class G implements Game
     protected int dyingTime;
 	
 	IGhostsController ghostsController;
+	
+	DebugOverlay debugOverlay;	//set by the view of the game, if any, and shared with its copies
 
 	/////////////////////////////////////////////////////////////////////////////
 	/////////////////  Constructors and Initialisers   //////////////////////////
@@ -71,43 +114,67 @@ public class G implements Game
 		return true;
 	}
 
-	//loads the mazes and store them
+	//loads the mazes and store them (only once, even if several games are started in parallel)
 	protected void init()
 	{		
-		for(int i=0;i<mazes.length;i++)
-			if(mazes[i]==null)
-				mazes[i]=new Maze(i);		
+		synchronized(mazes)
+		{
+			for(int i=0;i<mazes.length;i++)
+				if(mazes[i]==null)
+					mazes[i]=new Maze(i);
+		}
 	}
 
 	@Override
 	public Random rand() { return rnd; }
 	
-	// from https://stackoverflow.com/questions/18493319/copy-instance-variable-of-type-java-util-random-to-create-object-in-same-state
-	public static Random cloneRandom(Random src) {
-		try {
-		ByteArrayOutputStream bo = new ByteArrayOutputStream();
-		ObjectOutputStream oos = new ObjectOutputStream(bo);
-		oos.writeObject(src);
-		oos.close();
-		ObjectInputStream ois = new ObjectInputStream(
-				new ByteArrayInputStream(bo.toByteArray()));
-		return (Random)(ois.readObject());
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		} catch (ClassNotFoundException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
 	//Creates an exact copy of the game
 	public Game copy()
 	{
 		G copy = new G();
-		copy.rnd = cloneRandom(rnd);
+		copyInto(copy);
+		
+		return copy;
+	}
+	
+	//Puts the target game into exactly the same state as this one, reusing its arrays (and ghost controller, if
+	//the controller supports it). A search can create a pool of games once (using copy()) and then save and
+	//restore states in place, without creating garbage for every explored node.
+	public void copyInto(Game target)
+	{
+		G copy = (G)target;
+		if (copy == this)
+			return;
+		
+		if (copy.rnd == null)
+			copy.rnd = rnd.copy();
+		else
+			rnd.copyInto(copy.rnd);
 		copy.config = config;
 		copy.remainingLevels = remainingLevels;
-		copy.pills=(BitSet)pills.clone();
-		copy.powerPills=(BitSet)powerPills.clone();		
+		copy.pills=copyArray(pills,copy.pills);
+		copy.powerPills=powerPills;
+		copy.numActivePills=numActivePills;
+		copy.numActivePowerPills=numActivePowerPills;
+		if(copy.activePills!=null && !copy.activePillsSharing.isShared())
+		{
+			copy.activePillsSpare=copy.activePills;
+			copy.activePillPositionsSpare=copy.activePillPositions;
+			copy.activePillsSharingSpare=copy.activePillsSharing;
+		}
+		activePillsSharing.share();
+		copy.activePills=activePills;
+		copy.activePillPositions=activePillPositions;
+		copy.activePillsSharing=activePillsSharing;
+		copy.pillHash=pillHash;
+		if(copy.pillDistances!=null && !copy.pillDistancesSharing.isShared())
+		{
+			copy.pillDistancesSpare=copy.pillDistances;
+			copy.pillDistancesSharingSpare=copy.pillDistancesSharing;
+		}
+		pillDistancesSharing.share();
+		copy.pillDistances=pillDistances;
+		copy.pillDistancesSharing=pillDistancesSharing;
 		copy.curMaze=curMaze;
 		copy.totLevel=totLevel;
 		copy.levelTime=levelTime;
@@ -119,12 +186,12 @@ public class G implements Game
 		copy.lastPacManDir=lastPacManDir;
 		copy.livesRemaining=livesRemaining;
 		copy.extraLife=extraLife;
-		copy.curGhostLocs=Arrays.copyOf(curGhostLocs,curGhostLocs.length);
-		copy.lastGhostDirs=Arrays.copyOf(lastGhostDirs,lastGhostDirs.length);
-		copy.edibleTimes=Arrays.copyOf(edibleTimes,edibleTimes.length);
-		copy.lairTimes=Arrays.copyOf(lairTimes,lairTimes.length);
-		copy.lairX=Arrays.copyOf(lairX,lairX.length);
-		copy.lairY=Arrays.copyOf(lairY,lairY.length);
+		copy.curGhostLocs=copyArray(curGhostLocs,copy.curGhostLocs);
+		copy.lastGhostDirs=copyArray(lastGhostDirs,copy.lastGhostDirs);
+		copy.edibleTimes=copyArray(edibleTimes,copy.edibleTimes);
+		copy.lairTimes=copyArray(lairTimes,copy.lairTimes);
+		copy.lairX=copyArray(lairX,copy.lairX);
+		copy.lairY=copyArray(lairY,copy.lairY);
         copy.fruitLoc = fruitLoc; copy.fruitType = fruitType;
         copy.fruitDir = fruitDir; copy.fruitsLeft = fruitsLeft;
 		copy.ateFruitTime = ateFruitTime; copy.ateFruitLoc = ateFruitLoc;
@@ -132,9 +199,27 @@ public class G implements Game
         copy.eatingGhost = eatingGhost; copy.eatingTime = eatingTime;
         copy.eatingScore = eatingScore;
         copy.dyingTime = dyingTime;
-		copy.ghostsController = ghostsController.copy();
-        
-		return copy;
+		copy.debugOverlay = debugOverlay;
+		copy.ghostsController = ghostsController == null ? null : ghostsController.copyInto(copy.ghostsController);
+	}
+	
+	//Copies src into dst if it has the right length, otherwise returns a new copy of src
+	private static int[] copyArray(int[] src,int[] dst)
+	{
+		if(dst==null || dst.length!=src.length)
+			return Arrays.copyOf(src,src.length);
+		
+		System.arraycopy(src,0,dst,0,src.length);
+		return dst;
+	}
+	
+	private static long[] copyArray(long[] src,long[] dst)
+	{
+		if(dst==null || dst.length!=src.length)
+			return Arrays.copyOf(src,src.length);
+		
+		System.arraycopy(src,0,dst,0,src.length);
+		return dst;
 	}
     
     void setLevel(int level) {
@@ -149,16 +234,19 @@ public class G implements Game
 
     protected void newBoard() {
         levelTime=0;	
-        pills=new BitSet(getNumberPills());
-        pills.set(0,getNumberPills());
-        powerPills=new BitSet(getNumberPowerPills());
-        powerPills.set(0,getNumberPowerPills());
+        int numberPills = getNumberPills();
+        pills = new long[(numberPills + 63) / 64];
+        Arrays.fill(pills, -1L);
+        if (numberPills % 64 != 0)
+            pills[pills.length - 1] = (1L << numberPills) - 1;
+        powerPills = (1L << getNumberPowerPills()) - 1;
 
         if (!config.powerPillsEnabled) {
-            powerPills.clear();
+            powerPills = 0;
         }
+        initActivePills();
         if (config.totalPills < 1) {
-            int number = (int)Math.ceil(pills.length() * (1-(config.totalPills > 0 ? config.totalPills : 0)));
+            int number = (int)Math.ceil(numberPills * (1-(config.totalPills > 0 ? config.totalPills : 0)));
             decimatePills(number);
         }
 
@@ -205,13 +293,14 @@ public class G implements Game
 	
 	// Remove 'number' of pills from the maze
 	protected void decimatePills(int number) {
-		if (number == pills.length()) {
-			pills.clear();
+		if (number == getNumberPills()) {
+			Arrays.fill(pills, 0);
+			initActivePills();
 		} else {
 			List<Integer> pillNodeIndices = new ArrayList<Integer>();
-			Node[] graph = mazes[curMaze].graph;
-			for (int i = 0; i < graph.length; ++i) {
-				if (graph[i].pillIndex >= 0) {
+			Maze maze = mazes[curMaze];
+			for (int i = 0; i < maze.numNodes; ++i) {
+				if (maze.pillIndex[i] >= 0) {
 					pillNodeIndices.add(i);
 				}
 			}
@@ -227,8 +316,8 @@ public class G implements Game
 					pillNodeIndices.remove((Object)nodeIndex);
 					closedIndices.add(nodeIndex);
 					
-					if (pillIndex >= 0 && pills.get(pillIndex)) {
-						pills.clear(pillIndex);
+					if (pillIndex >= 0 && checkPill(pillIndex)) {
+						clearPill(pillIndex);
 						--number;
 					}
 					
@@ -257,6 +346,226 @@ public class G implements Game
 		}
 	}
 		
+	//Rebuilds the counts and the list of active pills from the bits
+	private void initActivePills()
+	{
+		int numberPills=getNumberPills();
+		
+		activePills=new int[numberPills];
+		activePillPositions=new int[numberPills];
+		activePillsSharing=new Sharing();
+		numActivePills=0;
+		pillHash=0;
+		
+		Arrays.fill(activePillPositions,-1);
+		for(int w=0;w<pills.length;w++)
+			for(long bits=pills[w];bits!=0;bits&=bits-1)
+			{
+				int i=64*w+Long.numberOfTrailingZeros(bits);
+				activePillPositions[i]=numActivePills;
+				activePills[numActivePills++]=i;
+				pillHash^=zobrist(Z_PILL,i);
+			}
+		
+		numActivePowerPills=Long.bitCount(powerPills);
+		for(long bits=powerPills;bits!=0;bits&=bits-1)
+			pillHash^=zobrist(Z_POWER_PILL,Long.numberOfTrailingZeros(bits));
+		
+		initPillDistances();
+	}
+	
+	//Removes an active pill: clears its bit and swaps the last active pill into its place in the list
+	private void clearPill(int pillIndex)
+	{
+		pills[pillIndex>>>6]&=~(1L<<pillIndex);
+		pillHash^=zobrist(Z_PILL,pillIndex);
+		
+		if(activePillsSharing.isShared())
+		{
+			activePills=copyShared(activePills,activePillsSpare,numActivePills);
+			activePillPositions=copyShared(activePillPositions,activePillPositionsSpare,activePillPositions.length);
+			activePillsSharing=activePillsSharingSpare!=null ? activePillsSharingSpare : new Sharing();
+			activePillsSpare=activePillPositionsSpare=null;
+			activePillsSharingSpare=null;
+		}
+		
+		int position=activePillPositions[pillIndex];
+		int last=activePills[--numActivePills];
+		activePills[position]=last;
+		activePillPositions[last]=position;
+		activePillPositions[pillIndex]=-1;
+		
+		removePillDistanceSource(mazes[curMaze].pillIndices[pillIndex]);
+	}
+	
+	//Copies the first length entries of a shared array into the spare if it has the right length, otherwise into
+	//a new array
+	private static int[] copyShared(int[] shared,int[] spare,int length)
+	{
+		int[] own=spare!=null && spare.length==shared.length ? spare : new int[shared.length];
+		System.arraycopy(shared,0,own,0,length);
+		return own;
+	}
+	
+	//Writes the active pills as bits into words from the offset on (pill i is bit i%64 of the word i/64) and returns
+	//the active power pills as the bits of a long (for BatchGame)
+	long getPillBits(long[] words,int offset)
+	{
+		System.arraycopy(pills,0,words,offset,pills.length);
+		return powerPills;
+	}
+	
+	//The reverse of getPillBits(-): sets the active pills (of the current maze) and rebuilds the state kept in sync
+	//with them
+	void setPillBits(long[] words,int offset,long powerBits)
+	{
+		int numberWords=(getNumberPills()+63)/64;
+		
+		if(pills==null || pills.length!=numberWords)
+			pills=new long[numberWords];
+		System.arraycopy(words,offset,pills,0,numberWords);
+		powerPills=powerBits;
+		
+		initActivePills();
+	}
+	
+	//Computes the distances to the nearest pill by a breadth-first search from all active pills and power pills
+	private void initPillDistances()
+	{
+		Maze maze=mazes[curMaze];
+		int[] neighbours=maze.neighbours;
+		
+		if(pillDistances==null || pillDistancesSharing.isShared() || pillDistances.length!=maze.numNodes)
+		{
+			pillDistances=new int[maze.numNodes];
+			pillDistancesSpare=null;
+			pillDistancesSharing=new Sharing();
+		}
+		int[] dist=pillDistances;
+		int[] queue=getPillQueue(maze.numNodes);
+		Arrays.fill(dist,NO_PILL);
+		
+		int tail=0;
+		for(int i=0;i<numActivePills;i++)
+		{
+			int node=maze.pillIndices[activePills[i]];
+			dist[node]=0;
+			queue[tail++]=node;
+		}
+		for(long bits=powerPills;bits!=0;bits&=bits-1)
+		{
+			int node=maze.powerPillIndices[Long.numberOfTrailingZeros(bits)];
+			dist[node]=0;
+			queue[tail++]=node;
+		}
+		
+		for(int head=0;head<tail;head++)
+		{
+			int node=queue[head];
+			for(int i=0;i<4;i++)
+			{
+				int next=neighbours[4*node+i];
+				if(next!=-1 && dist[next]==NO_PILL)
+				{
+					dist[next]=dist[node]+1;
+					queue[tail++]=next;
+				}
+			}
+		}
+	}
+	
+	//Updates the distances to the nearest pill once the (power) pill at the source node has been eaten. Only the
+	//nodes that may have had it as their nearest pill are searched again, starting from the nodes around them
+	private void removePillDistanceSource(int source)
+	{
+		Maze maze=mazes[curMaze];
+		int[] neighbours=maze.neighbours;
+		int[] queue=getPillQueue(maze.numNodes);
+		
+		if(pillDistancesSharing.isShared())
+		{
+			pillDistances=copyShared(pillDistances,pillDistancesSpare,pillDistances.length);
+			pillDistancesSharing=pillDistancesSharingSpare!=null ? pillDistancesSharingSpare : new Sharing();
+			pillDistancesSpare=null;
+			pillDistancesSharingSpare=null;
+		}
+		int[] dist=pillDistances;
+		
+		//the affected nodes: those reached from the source along increasing distances (marked as -1-distance)
+		int affected=0;
+		queue[affected++]=source;
+		dist[source]=-1;
+		for(int head=0;head<affected;head++)
+		{
+			int node=queue[head],d=-1-dist[node];
+			for(int i=0;i<4;i++)
+			{
+				int next=neighbours[4*node+i];
+				if(next!=-1 && dist[next]==d+1)
+				{
+					dist[next]=-2-d;
+					queue[affected++]=next;
+				}
+			}
+		}
+		
+		//their distances through the unaffected nodes next to them, as distance<<bits|node, sorted
+		int bits=32-Integer.numberOfLeadingZeros(maze.numNodes),mask=(1<<bits)-1;
+		int seeds=0;
+		for(int i=0;i<affected;i++)
+		{
+			int node=queue[i],best=NO_PILL;
+			for(int j=0;j<4;j++)
+			{
+				int next=neighbours[4*node+j];
+				if(next!=-1 && dist[next]>=0 && dist[next]<best)
+					best=dist[next];
+			}
+			dist[node]=NO_PILL;
+			if(best!=NO_PILL)
+				queue[seeds++]=(best+1)<<bits|node;
+		}
+		Arrays.sort(queue,0,seeds);
+		
+		//a breadth-first search through the affected nodes, merging in the seeds in the order of their distances
+		int seed=0,head=seeds,tail=seeds;
+		while(seed<seeds || head<tail)
+		{
+			int node,d;
+			if(head==tail || (seed<seeds && queue[seed]>>>bits<=dist[queue[head]]))
+			{
+				node=queue[seed]&mask;
+				d=queue[seed++]>>>bits;
+				if(d>=dist[node])
+					continue;
+				dist[node]=d;
+			}
+			else
+			{
+				node=queue[head++];
+				d=dist[node];
+			}
+			
+			for(int i=0;i<4;i++)
+			{
+				int next=neighbours[4*node+i];
+				if(next!=-1 && dist[next]>d+1)
+				{
+					dist[next]=d+1;
+					queue[tail++]=next;
+				}
+			}
+		}
+	}
+	
+	private int[] getPillQueue(int numNodes)
+	{
+		if(pillQueue==null || pillQueue.length<2*numNodes)
+			pillQueue=new int[2*numNodes];
+		
+		return pillQueue;
+	}
+		
 	/////////////////////////////  Game Play   //////////////////////////////////
     
     void placeInLair(int index) {
@@ -312,9 +621,10 @@ public class G implements Game
                 int[] startX = new int[4];
                 int count = 0;
 
-                for (Node n : mazes[curMaze].graph)
-                    if (n.x == 0 || n.x == 108)   // at left or right edge of maze
-                        startX[count++] = n.nodeIndex;
+                Maze maze = mazes[curMaze];
+                for (int i = 0; i < maze.numNodes; i++)
+                    if (maze.x[i] == 0 || maze.x[i] == 108)   // at left or right edge of maze
+                        startX[count++] = i;
                 
                 if (count == 0)
                     throw new RuntimeException("can't find any tunnels");
@@ -401,6 +711,34 @@ public class G implements Game
 			ghostsController.nextLevel(this);
 	}
 
+	/*
+	 * Moves Ms Pac-Man in the direction specified and then along the corridor she is in, requesting the ghost
+	 * actions from the ghost controller as advanceGame(int) does, until she reaches the next junction. Stops
+	 * early if she loses a life, the level changes or the game is over. Returns the number of ticks played.
+	 */
+	public int advanceToNextJunction(int dir)
+	{
+		int level=totLevel;
+		int lives=livesRemaining;
+		int ticks=0;
+		
+		while(true)
+		{
+			advanceGame(dir);
+			ticks++;
+			
+			if(gameOver || totLevel!=level || livesRemaining<lives || isJunction(curPacManLoc))
+				return ticks;
+			
+			//blocked, e.g., by an illegal direction: no corridor to follow
+			if(lastPacManDir<0 || lastPacManDir>3)
+				return ticks;
+			
+			if(!isSuspended())
+				dir=JunctionGraph.forward(mazes[curMaze],curPacManLoc,lastPacManDir);
+		}
+	}
+
 	//Updates the location of Ms Pac-Man
 	protected void updatePacMan(int dir)
 	{
@@ -412,16 +750,17 @@ public class G implements Game
 	//Checks the direction supplied by the controller and substitutes for a legal one if necessary
 	protected int checkPacManDir(int direction)
 	{
-		int[] neighbours=getPacManNeighbours();
+		int[] neighbours=mazes[curMaze].neighbours;
+		int node=4*curPacManLoc;
 				
-		if((direction>3 || direction<0 || neighbours[direction]==-1) && (lastPacManDir>3 || lastPacManDir<0 || neighbours[lastPacManDir]==-1))
+		if((direction>3 || direction<0 || neighbours[node+direction]==-1) && (lastPacManDir>3 || lastPacManDir<0 || neighbours[node+lastPacManDir]==-1))
 			return 4;
 		
 		if(direction<0 || direction>3)
 			direction=lastPacManDir;
 		
-		if(neighbours[direction]==-1)
-			if(neighbours[lastPacManDir]!=-1) 
+		if(neighbours[node+direction]==-1)
+			if(neighbours[node+lastPacManDir]!=-1) 
 				direction=lastPacManDir;
 			else
 			{
@@ -435,11 +774,6 @@ public class G implements Game
 	//Updates the locations of the ghosts
 	protected void updateGhosts(GhostsActions ghosts,boolean reverse)
 	{
-		int[] directions = new int[4];
-		for (int i = 0; i < ghosts.ghostCount; ++i) {
-			directions[i] = ghosts.actions[i].get().index;
-		}
-        
         int lairX0 = getX(mazes[curMaze].lairPosition),
             lairY0 = getY(mazes[curMaze].lairPosition);
 
@@ -472,9 +806,9 @@ public class G implements Game
 				}
 				else if(edibleTimes[i]==0 || edibleTimes[i]%GHOST_SPEED_REDUCTION!=0)
 				{
-					directions[i]=checkGhostDir(i,directions[i]);
-					lastGhostDirs[i]=directions[i];
-					curGhostLocs[i]=getNeighbour(curGhostLocs[i],directions[i]);
+					int direction=checkGhostDir(i,ghosts.actions[i].get().index);
+					lastGhostDirs[i]=direction;
+					curGhostLocs[i]=getNeighbour(curGhostLocs[i],direction);
 				}
 			}
 	}
@@ -485,11 +819,14 @@ public class G implements Game
 		if(direction<0 || direction>3)
 			direction=lastGhostDirs[whichGhost];
 			
-		int[] neighbours=getGhostNeighbours(whichGhost);
+		//the neighbours as in getGhostNeighbours(-), without copying them: the reverse direction is not allowed
+		int[] neighbours=mazes[curMaze].neighbours;
+		int node=4*curGhostLocs[whichGhost];
+		int reverse=getReverse(lastGhostDirs[whichGhost]);
 			
-		if(neighbours[direction]==-1)
+		if(direction==reverse || neighbours[node+direction]==-1)
 		{
-			if(neighbours[lastGhostDirs[whichGhost]]!=-1)
+			if(neighbours[node+lastGhostDirs[whichGhost]]!=-1)
 				direction=lastGhostDirs[whichGhost];
 			else
 			{
@@ -506,10 +843,10 @@ public class G implements Game
 	{
 		int pillIndex=getPillIndex(curPacManLoc);
 
-		if(pillIndex>=0 && pills.get(pillIndex))
+		if(pillIndex>=0 && (pills[pillIndex>>>6]&1L<<pillIndex)!=0)
 		{
 			score+=G.PILL;
-			pills.clear(pillIndex);
+			clearPill(pillIndex);
 		}
 	}
 	
@@ -519,11 +856,14 @@ public class G implements Game
 		boolean reverse=false;
 		int powerPillIndex=getPowerPillIndex(curPacManLoc);
 		
-		if(powerPillIndex>=0 && powerPills.get(powerPillIndex))
+		if(powerPillIndex>=0 && (powerPills&1L<<powerPillIndex)!=0)
 		{
 			score+=G.POWER_PILL;
 			ghostEatMultiplier=1;
-			powerPills.clear(powerPillIndex);
+			powerPills&=~(1L<<powerPillIndex);
+			numActivePowerPills--;
+			pillHash^=zobrist(Z_POWER_PILL,powerPillIndex);
+			removePillDistanceSource(curPacManLoc);
 			
 			int newEdibleTime=(int)(G.EDIBLE_TIME*(Math.pow(G.EDIBLE_TIME_REDUCTION,totLevel - 1)));
 			
@@ -572,11 +912,11 @@ public class G implements Game
 	protected void checkLevelState()
 	{
 		//if all pills have been eaten or the time is up...
-		if((pills.isEmpty() && powerPills.isEmpty()) || levelTime>=LEVEL_LIMIT)
+		if((numActivePills==0 && numActivePowerPills==0) || levelTime>=LEVEL_LIMIT)
 		{
 			if (levelTime < LEVEL_LIMIT)
 				//award any remaining pills to Ms Pac-Man
-				score+=G.PILL*pills.cardinality()+G.POWER_PILL*powerPills.cardinality();			 
+				score+=G.PILL*numActivePills+G.POWER_PILL*numActivePowerPills;			 
 			else
 				livesRemaining--;
 				
@@ -615,35 +955,30 @@ public class G implements Game
 		return gameOver;
 	}
 	
-	//Whether the pill specified is still there
-	public boolean checkPill(int nodeIndex)
+	//Whether the pill specified (by its pill index) is still there
+	public boolean checkPill(int pillIndex)
 	{
-		return pills.get(nodeIndex);
+		int word=pillIndex>>>6;
+		return word<pills.length && (pills[word]&1L<<pillIndex)!=0;
 	}
 	
-	//Whether the power pill specified is still there
-	public boolean checkPowerPill(int nodeIndex)
+	//Whether the power pill specified (by its power pill index) is still there
+	public boolean checkPowerPill(int powerPillIndex)
 	{
-		return powerPills.get(nodeIndex);
+		return powerPillIndex>=0 && powerPillIndex<64 && (powerPills&1L<<powerPillIndex)!=0;
 	}
 	
 	//Returns the neighbours of the node at which Ms Pac-Man currently resides
 	public int[] getPacManNeighbours()
 	{
-		return Arrays.copyOf(mazes[curMaze].graph[curPacManLoc].neighbours,mazes[curMaze].graph[curPacManLoc].neighbours.length);
+		return Arrays.copyOfRange(mazes[curMaze].neighbours,4*curPacManLoc,4*curPacManLoc+4);
 	}
 	
 	//Returns the neighbours of the node at which the specified ghost currently resides. NOTE: since ghosts are not allowed to reverse, that
 	//neighbour is filtered out. Alternatively use: getNeighbour(), given curGhostLoc[-] for all directions
 	public int[] getGhostNeighbours(int whichGhost)
 	{
-        int[] neighbours=
-            Arrays.copyOf(
-                mazes[curMaze].graph[curGhostLocs[whichGhost]].neighbours,
-                mazes[curMaze].graph[curGhostLocs[whichGhost]].neighbours.length);		
-		neighbours[getReverse(lastGhostDirs[whichGhost])]=-1;
-		
-		return neighbours;
+		return getGhostNeighbours(curGhostLocs[whichGhost],lastGhostDirs[whichGhost]);
 	}
 	
 	//The current level
@@ -773,33 +1108,33 @@ public class G implements Game
 	//Total number of nodes in the graph (i.e., those with pills, power pills and those that are empty)
 	public int getNumberOfNodes()
 	{
-		return mazes[curMaze].graph.length;
+		return mazes[curMaze].numNodes;
 	}
 		
 	//Returns the x coordinate of the specified node
 	public int getX(int index)
 	{
-		return mazes[curMaze].graph[index].x;
+		return mazes[curMaze].x[index];
 	}
 	
 	//Returns the y coordinate of the specified node
 	public int getY(int index)
 	{
-		return mazes[curMaze].graph[index].y;
+		return mazes[curMaze].y[index];
 	}
 	
 	//Returns the pill index of the node. If it is -1, the node has no pill. Otherwise one can
 	//use the bitset to check whether the pill has already been eaten
 	public int getPillIndex(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].pillIndex;
+		return mazes[curMaze].pillIndex[nodeIndex];
 	}
 	
 	//Returns the power pill index of the node. If it is -1, the node has no pill. Otherwise one 
 	//can use the bitset to check whether the pill has already been eaten
 	public int getPowerPillIndex(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].powerPillIndex;
+		return mazes[curMaze].powerPillIndex[nodeIndex];
 	}
 	
 	//Returns the neighbour of node index that corresponds to direction. In the case of neutral, the 
@@ -809,7 +1144,7 @@ public class G implements Game
 		if(direction<0 || direction>3)//this takes care of "neutral"
 			return nodeIndex;
 		else
-			return mazes[curMaze].graph[nodeIndex].neighbours[direction];
+			return mazes[curMaze].neighbours[4*nodeIndex+direction];
 	}
 		
 	//Returns the indices to all the nodes that have pills
@@ -830,10 +1165,16 @@ public class G implements Game
 		return Arrays.copyOf(mazes[curMaze].junctionIndices,mazes[curMaze].junctionIndices.length);
 	}
 	
+	//Returns the junction graph of the current maze
+	public JunctionGraph getJunctionGraph()
+	{
+		return mazes[curMaze].junctionGraph;
+	}
+	
 	//Checks of a node is a junction
 	public boolean isJunction(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].numNeighbours>2;
+		return mazes[curMaze].numNeighbours[nodeIndex]>2;
 	}
 	
 	//returns the score awarded for the next ghost to be eaten
@@ -845,25 +1186,32 @@ public class G implements Game
 	//returns the number of pills still in the maze
 	public int getNumActivePills()				
 	{
-		return pills.cardinality();
+		return numActivePills;
 	}
 	
 	//returns the number of power pills still in the maze
 	public int getNumActivePowerPills()
 	{
-		return powerPills.cardinality();
+		return numActivePowerPills;
+	}
+	
+	//returns the node of the i-th active pill, 0<=i<getNumActivePills(), in no particular order
+	public int getActivePillNode(int i)
+	{
+		return mazes[curMaze].pillIndices[activePills[i]];
 	}
 	
 	//returns the indices of all active pills in the maze
 	public int[] getPillIndicesActive()
 	{
-		int[] indices=new int[pills.cardinality()];
+		int[] indices=new int[numActivePills];
+		int[] pillIndices=mazes[curMaze].pillIndices;
 		
 		int index=0;
 		
-		for(int i=0;i<mazes[curMaze].pillIndices.length;i++)
-			if(pills.get(i))
-				indices[index++]=mazes[curMaze].pillIndices[i];		
+		for(int w=0;w<pills.length;w++)
+			for(long bits=pills[w];bits!=0;bits&=bits-1)
+				indices[index++]=pillIndices[64*w+Long.numberOfTrailingZeros(bits)];
 			
 		return indices;
 	}
@@ -871,13 +1219,12 @@ public class G implements Game
 	//returns the indices of all active power pills in the maze
 	public int[] getPowerPillIndicesActive()	
 	{
-		int[] indices=new int[powerPills.cardinality()];
+		int[] indices=new int[numActivePowerPills];
 		
 		int index=0;
 		
-		for(int i=0;i<mazes[curMaze].powerPillIndices.length;i++)
-			if(powerPills.get(i))
-				indices[index++]=mazes[curMaze].powerPillIndices[i];		
+		for(long bits=powerPills;bits!=0;bits&=bits-1)
+			indices[index++]=mazes[curMaze].powerPillIndices[Long.numberOfTrailingZeros(bits)];
 			
 		return indices;
 	}
@@ -885,7 +1232,7 @@ public class G implements Game
 	//Returns the number of neighbours of a node: 2, 3 or 4. Exception: lair, which has no neighbours
 	public int getNumNeighbours(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].numNeighbours;
+		return mazes[curMaze].numNeighbours[nodeIndex];
 	}
 	
 	//Returns the actual directions Ms Pac-Man can take
@@ -903,12 +1250,12 @@ public class G implements Game
 	//Computes the directions to be taken given the current location
 	public int[] getPossibleDirs(int curLoc,int curDir,boolean includeReverse)
 	{
-		int numNeighbours=mazes[curMaze].graph[curLoc].numNeighbours;
+		int numNeighbours=mazes[curMaze].numNeighbours[curLoc];
 
 		if(numNeighbours==0)
 			return new int[0];
 		
-		int[] nodes=mazes[curMaze].graph[curLoc].neighbours;
+		int[] nodes=mazes[curMaze].neighbours;
 		int[] directions;
 		
 		if(includeReverse || (curDir<0 || curDir>3))
@@ -918,8 +1265,8 @@ public class G implements Game
 		
 		int index=0;
 		
-		for(int i=0;i<nodes.length;i++)
-			if(nodes[i]!=-1)
+		for(int i=0;i<4;i++)
+			if(nodes[4*curLoc+i]!=-1)
 			{
 				if(includeReverse || (curDir<0 || curDir>3))
 					directions[index++]=i;
@@ -934,37 +1281,47 @@ public class G implements Game
 	//measure
 	public int getNextPacManDir(int to,boolean closer,DM measure)
 	{
-		return getNextDir(mazes[curMaze].graph[curPacManLoc].neighbours,to,closer,measure);
+		if(closer && measure==DM.PATH && to>=0 && to<mazes[curMaze].numNodes)
+			return mazes[curMaze].getNextDir(curPacManLoc,to);		//pre-computed
+		
+		return getNextDir(curPacManLoc,-1,to,closer,measure);
 	}
 	
 	//Returns the direction the ghost should take to approach/retreat a target (to) given some distance 
 	//measure. Reversals are filtered.
 	public int getNextGhostDir(int whichGhost,int to,boolean closer,Game.DM measure)
 	{	
-		return getNextDir(getGhostNeighbours(whichGhost),to,closer,measure);
+		if(closer && measure==DM.PATH && to>=0 && to<mazes[curMaze].numNodes)
+			return mazes[curMaze].getNextDir(curGhostLocs[whichGhost],getReverse(lastGhostDirs[whichGhost]),to);
+		
+		return getNextDir(curGhostLocs[whichGhost],getReverse(lastGhostDirs[whichGhost]),to,closer,measure);
 	}
 	
-	//This method returns the direction to take given some options (usually corresponding to the
-	//neighbours of the node in question), moving either towards or away (closer in {true, false})
+	//This method returns the direction to take from the node given (considering all its neighbours
+	//except the one in the excluded direction, if any), moving either towards or away (closer in {true, false})
 	//using one of the three distance measures.
-	private int getNextDir(int[] from,int to,boolean closer,Game.DM measure)
+	private int getNextDir(int node,int excludedDir,int to,boolean closer,Game.DM measure)
 	{
 		int dir=-1;
 
 		double min=Integer.MAX_VALUE;
 		double max=-Integer.MAX_VALUE;
+		
+		int[] neighbours=mazes[curMaze].neighbours;
 			
-		for(int i=0;i<from.length;i++)
+		for(int i=0;i<4;i++)
 		{
-			if(from[i]!=-1)
+			int next=neighbours[4*node+i];
+			
+			if(next!=-1 && i!=excludedDir)
 			{
 				double dist=0;
 					
 				switch(measure)
 				{
-					case PATH: dist=getPathDistance(from[i],to); break;
-					case EUCLID: dist=getEuclideanDistance(from[i],to); break;
-					case MANHATTAN: dist=getManhattanDistance(from[i],to); break;
+					case PATH: dist=getPathDistance(next,to); break;
+					case EUCLID: dist=getEuclideanDistance(next,to); break;
+					case MANHATTAN: dist=getManhattanDistance(next,to); break;
 				}
 					
 				if(closer && dist<min)
@@ -987,36 +1344,24 @@ public class G implements Game
 	//Returns the PATH distance from any node to any other node
 	public int getPathDistance(int from,int to)
 	{
-		if(from==to)
-			return 0;		
-		else if(from<to)
-			return mazes[curMaze].distances[((to*(to+1))/2)+from];
-		else
-			return mazes[curMaze].distances[((from*(from+1))/2)+to];
+		return mazes[curMaze].getDistance(from,to);
 	}
 	
 	//Returns the EUCLEDIAN distance between two nodes in the current maze.
 	public double getEuclideanDistance(int from,int to)
 	{
-		return Math.sqrt(Math.pow(mazes[curMaze].graph[from].x-mazes[curMaze].graph[to].x,2)+Math.pow(mazes[curMaze].graph[from].y-mazes[curMaze].graph[to].y,2));
+		return Math.sqrt(Math.pow(mazes[curMaze].x[from]-mazes[curMaze].x[to],2)+Math.pow(mazes[curMaze].y[from]-mazes[curMaze].y[to],2));
 	}
 	
 	
 	//Returns the MANHATTAN distance between two nodes in the current maze.
 	public int getManhattanDistance(int from,int to)
 	{
-		if(from >= mazes[curMaze].graph.length) {
+		if(from >= mazes[curMaze].numNodes) {
 			return 100000;
 		}
-		return (int)(Math.abs(mazes[curMaze].
-		graph[from].
-		x-mazes[curMaze].
-		graph[to].x)+
-		Math.abs(mazes[curMaze].
-		graph[from].
-		y-mazes[curMaze].
-		graph[to].
-		y));
+		return (int)(Math.abs(mazes[curMaze].x[from]-mazes[curMaze].x[to])+
+		Math.abs(mazes[curMaze].y[from]-mazes[curMaze].y[to]));
 	}
 	
 	//Returns the path of adjacent nodes from one node to another, including these nodes
@@ -1024,51 +1369,50 @@ public class G implements Game
 	public int[] getPath(int from,int to)
 	{
 		if (from < 0 || to < 0) return new int[0];
+		Maze maze=mazes[curMaze];
+		
+		//each step along the pre-computed moves gets one node closer, so the path has exactly this many nodes
+		int length=maze.getDistance(from,to);
+		if(length<=0)
+			return new int[0];
+		
+		int[] path=new int[length];
 		int currentNode=from;
-		ArrayList<Integer> path=new ArrayList<Integer>();
-		int lastDir;
 
-		while(currentNode!=to)
+		for(int i=0;i<length;i++)
 		{
-			path.add(currentNode);
-			int[] neighbours=mazes[curMaze].graph[currentNode].neighbours;
-			lastDir=getNextDir(neighbours,to,true,G.DM.PATH);
-			currentNode=neighbours[lastDir];
+			path[i]=currentNode;
+			currentNode=maze.neighbours[4*currentNode+maze.getNextDir(currentNode,to)];
 		}
 
-		int[] arrayPath=new int[path.size()];
-
-		for(int i=0;i<arrayPath.length;i++)
-			arrayPath[i]=path.get(i);
-
-		return arrayPath;
+		return path;
 	}
 	
 	//Similar to getPath(-) but takes into consideration the fact that ghosts may not reverse. Hence the path to be taken
 	//may be significantly longer than the shortest available path
 	public int[] getGhostPath(int whichGhost,int to)
 	{
-		if(mazes[curMaze].graph[curGhostLocs[whichGhost]].numNeighbours==0)
+		if(mazes[curMaze].numNeighbours[curGhostLocs[whichGhost]]==0)
 			return new int[0];
 
+		Maze maze=mazes[curMaze];
 		int currentNode=curGhostLocs[whichGhost];
-		ArrayList<Integer> path=new ArrayList<Integer>();
 		int lastDir=lastGhostDirs[whichGhost];
+		
+		int length=maze.getGhostDistance(currentNode,getReverse(lastDir),to);
+		if(length<=0)
+			return new int[0];
+		
+		int[] path=new int[length];
 
-		while(currentNode!=to)
+		for(int i=0;i<length;i++)
 		{
-			path.add(currentNode);
-			int[] neighbours=getGhostNeighbours(currentNode,lastDir);
-			lastDir=getNextDir(neighbours,to,true,G.DM.PATH);
-			currentNode=neighbours[lastDir];
+			path[i]=currentNode;
+			lastDir=maze.getNextDir(currentNode,getReverse(lastDir),to);
+			currentNode=maze.neighbours[4*currentNode+lastDir];
 		}
 
-		int[] arrayPath=new int[path.size()];
-
-		for(int i=0;i<arrayPath.length;i++)
-			arrayPath[i]=path.get(i);
-
-		return arrayPath;
+		return path;
 	}
 	
 	//Returns the node from 'targets' that is closest/farthest from the node 'from' given the distance measure specified
@@ -1137,48 +1481,80 @@ public class G implements Game
 	//Returns the path distance for a particular ghost: takes into account the fact that ghosts may not reverse
 	public int getGhostPathDistance(int whichGhost,int to)
 	{
-		return getGhostPath(whichGhost,to).length;
+		return mazes[curMaze].getGhostDistance(curGhostLocs[whichGhost],getReverse(lastGhostDirs[whichGhost]),to);
 	}
 	
 	//Returns the neighbours of a node with the one correspodining to the reverse of direction being deleted (i.e., =-1)
 	private int[] getGhostNeighbours(int node,int lastDirection)
 	{
-		int[] neighbours=Arrays.copyOf(mazes[curMaze].graph[node].neighbours,mazes[curMaze].graph[node].neighbours.length);		
+		int[] neighbours=Arrays.copyOfRange(mazes[curMaze].neighbours,4*node,4*node+4);		
 		neighbours[getReverse(lastDirection)]=-1;
 		
 		return neighbours;
     }
 
 	public int getDistanceToNearestPill() {
-		int num = getNumberOfNodes();
-		int[] dist = new int[num];
-		for (int i = 0 ; i < num ; ++i)
-			dist[i] = -1;
-		dist[curPacManLoc] = 0;
-
-		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
-		queue.add(curPacManLoc);
-
-		while (!queue.isEmpty()) {
-			int node = queue.remove();
-
-			int p = getPillIndex(node);
-			if (p != -1 && checkPill(p))
-				return dist[node];
-			p = getPowerPillIndex(node);
-			if (p != -1 && checkPowerPill(p))
-				return dist[node];
-
-			for (Direction dir : Direction.arrows()) {
-				int n = getNeighbour(node, dir.index);
-				if (n != -1 && dist[n] == -1) {
-					dist[n] = dist[node] + 1;
-					queue.add(n);
-				}
-			}
+		int distance=pillDistances[curPacManLoc];
+		if (distance == NO_PILL)
+			throw new RuntimeException("no pill found");
+		return distance;
+	}
+	
+	//Zobrist hash of the position: Ms Pac-Man's location and direction, the ghosts' locations (also within the
+	//lair), directions and edible times, the active pills and power pills, the fruit, the level and the lives.
+	//The time, the score and the lair timers are left out, so that the same position reached at different times
+	//has the same hash
+	public long getHash()
+	{
+		long hash=pillHash^zobrist(Z_LEVEL,totLevel)^zobrist(Z_LIVES,livesRemaining)
+				^zobrist(Z_PACMAN,curPacManLoc)^zobrist(Z_PACMAN_DIR,lastPacManDir)
+				^zobrist(Z_FRUIT,fruitLoc);
+		if(fruitLoc!=-1)
+			hash^=zobrist(Z_FRUIT_TYPE,fruitType)^zobrist(Z_FRUIT_DIR,fruitDir);
+		
+		for(int i=0;i<curGhostLocs.length;i++)
+		{
+			hash^=zobrist(Z_GHOST+i,curGhostLocs[i])^zobrist(Z_GHOST_DIR+i,lastGhostDirs[i])
+					^zobrist(Z_EDIBLE+i,edibleTimes[i]);
+			if(isInLair(i))
+				hash^=zobrist(Z_LAIR_X+i,lairX[i])^zobrist(Z_LAIR_Y+i,lairY[i]);
 		}
-
-		throw new RuntimeException("no pill found");
+		return hash;
+	}
+	
+	//Random key of a feature having the given value, i.e., an entry of a Zobrist table that is generated (by the
+	//SplitMix64 finalizer) rather than stored
+	static long zobrist(int feature,int value)
+	{
+		long z=((long)feature<<32|(value&0xFFFFFFFFL))*0x9E3779B97F4A7C15L;
+		z=(z^(z>>>30))*0xBF58476D1CE4E5B9L;
+		z=(z^(z>>>27))*0x94D049BB133111EBL;
+		return z^(z>>>31);
+	}
+	
+	//Distance from the node to the nearest active pill or power pill, or -1 if there is none
+	public int getDistanceToNearestPill(int nodeIndex)
+	{
+		int distance=pillDistances[nodeIndex];
+		return distance==NO_PILL ? -1 : distance;
+	}
+	
+	//Direction to take from the node to approach the nearest pill (the first one in the order up, right, down, left
+	//if there are several), or -1 if there is a pill on the node or there are none
+	public int getNextDirToNearestPill(int nodeIndex)
+	{
+		int distance=pillDistances[nodeIndex];
+		if(distance==0 || distance==NO_PILL)
+			return -1;
+		
+		int[] neighbours=mazes[curMaze].neighbours;
+		for(int i=0;i<4;i++)
+		{
+			int next=neighbours[4*nodeIndex+i];
+			if(next!=-1 && pillDistances[next]==distance-1)
+				return i;
+		}
+		return -1;
 	}
     
     public int getFruitLoc() { return fruitLoc; }
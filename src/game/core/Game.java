@@ -82,6 +82,12 @@ public interface Game
 	
     public Game copy();						//returns an exact copy of the game (forward model)
     
+    //puts the target game (typically one obtained earlier from copy()) into exactly the same state as this
+    // game, reusing its memory; e.g., game.copyInto(saved) takes a snapshot and saved.copyInto(game) restores it.
+    // Neither changes this game, so several threads may copy one game at the same time (e.g., the root of a
+    // parallel search), as long as none of them advances it meanwhile and each copies into a target of its own
+    public void copyInto(Game target);
+    
     public Random rand();
 
     //advances the game using the given actions for Ms. Pac-Man and the ghosts
@@ -89,6 +95,10 @@ public interface Game
     
     // advance the game, requesting ghost actions from the ghost controller
     public void advanceGame(int pac_dir);
+    
+    //advances the game as above, moving Ms Pac-Man in the direction given and then along the corridor until she
+    // reaches the next junction (or loses a life, or the level or game ends); returns the number of ticks taken
+    public int advanceToNextJunction(int dir);
 
     public int getReverse(int direction);		//returns the reverse of the direction supplied
 
@@ -177,12 +187,19 @@ public interface Game
 	public int getNumActivePowerPills();	//returns the number of power pills still in the maze
     public int[] getPillIndicesActive();	//returns the indices of all active pills in the maze
     
+    //returns the node of the i-th active pill, 0<=i<getNumActivePills(), in no particular order
+    //(iterates the active pills without allocating, unlike getPillIndicesActive())
+    public int getActivePillNode(int i);
+    
     //returns the indices of all active power pills in the maze
 	public int[] getPowerPillIndicesActive(); 
 
     //returns true if node is a junction (more than 2 neighbours)
     public boolean isJunction(int nodeIndex);	
     
+    //returns the junction-to-junction (corridor-compressed) graph of the current maze
+    public JunctionGraph getJunctionGraph();
+    
     //returns the number of neighbours of the node specified
 	public int getNumNeighbours(int nodeIndex);	
     
@@ -237,6 +254,19 @@ public interface Game
     // Return the distance from Ms. Pac-Man to the nearest pill or power pill.
     public int getDistanceToNearestPill();
     
+    // Return the distance from the node to the nearest pill or power pill, or -1 if there is none (O(1)).
+    public int getDistanceToNearestPill(int nodeIndex);
+    
+    // Return the direction to take from the node towards the nearest pill or power pill, or -1 if the node has one
+    // or there is none.
+    public int getNextDirToNearestPill(int nodeIndex);
+    
+    // Return a 64-bit Zobrist hash of the position (equal positions reached at different times hash equally), e.g.,
+    // for transposition tables. Only the part for the pills is maintained incrementally; the rest (Ms Pac-Man, the
+    // ghosts, the fruit, the level and the lives) is mixed in on every call, 17 to 27 keys with four ghosts, so
+    // the cost does not depend on the number of pills but callers should keep the value rather than ask again.
+    public long getHash();
+    
     // Return the location at which a fruit currently exists, or -1 if none.
     public int getFruitLoc();
     
@@ -0,0 +1,119 @@
+package game.core;
+
+import java.util.Random;
+
+/*
+ * The random number generator owned by a game. Its entire state is a single long (plus the cached Gaussian),
+ * held in plain fields: nothing is synchronized or updated with CAS, and copying a game copies the generator
+ * by assigning these fields rather than by serializing a java.util.Random.
+ * 
+ * In legacy mode it produces exactly the same sequence as java.util.Random seeded with the same value, so
+ * games recorded with a seed are replayed unchanged. Otherwise it uses SplitMix64, which is equally cheap and
+ * has better statistical quality. Either way, the sequence is fully determined by the seed.
+ * 
+ * All the methods inherited from java.util.Random draw their bits from next(-), so they follow the same rules.
+ */
+public final class GameRandom extends Random
+{
+	private static final long serialVersionUID=1L;
+	
+	//java.util.Random's linear congruential generator
+	private static final long MULTIPLIER=0x5DEECE66DL;
+	private static final long ADDEND=0xBL;
+	private static final long MASK=(1L<<48)-1;
+	
+	//SplitMix64 increment
+	private static final long GOLDEN_GAMMA=0x9E3779B97F4A7C15L;
+	
+	private boolean legacy;
+	private long state;
+	private double nextNextGaussian;
+	private boolean haveNextNextGaussian;
+	
+	public GameRandom(long seed,boolean legacy)
+	{
+		super(0L);
+		this.legacy=legacy;
+		setSeed(seed);
+	}
+	
+	//Copy constructor
+	private GameRandom(GameRandom src)
+	{
+		super(0L);
+		src.copyInto(this);
+	}
+	
+	//Returns a generator in exactly the same state (the two then produce the same sequence independently)
+	public GameRandom copy()
+	{
+		return new GameRandom(this);
+	}
+	
+	//Puts 'target' into exactly the same state as this generator
+	public void copyInto(GameRandom target)
+	{
+		target.legacy=legacy;
+		target.state=state;
+		target.nextNextGaussian=nextNextGaussian;
+		target.haveNextNextGaussian=haveNextNextGaussian;
+	}
+	
+	//Whether the generator reproduces java.util.Random
+	public boolean isLegacy()
+	{
+		return legacy;
+	}
+	
+	@Override
+	public void setSeed(long seed)
+	{
+		//called by the constructor of java.util.Random before our fields are initialised; the seed is set again afterwards
+		state=legacy ? (seed^MULTIPLIER)&MASK : seed;
+		haveNextNextGaussian=false;
+	}
+	
+	@Override
+	protected int next(int bits)
+	{
+		if(legacy)
+		{
+			state=(state*MULTIPLIER+ADDEND)&MASK;
+			return (int)(state>>>(48-bits));
+		}
+		
+		state+=GOLDEN_GAMMA;
+		long z=state;
+		z=(z^(z>>>30))*0xBF58476D1CE4E5B9L;
+		z=(z^(z>>>27))*0x94D049BB133111EBL;
+		z=z^(z>>>31);
+		return (int)(z>>>(64-bits));
+	}
+	
+	//Same algorithm as java.util.Random, but keeping the cached value in this object so that it is copied too
+	@Override
+	public double nextGaussian()
+	{
+		if(haveNextNextGaussian)
+		{
+			haveNextNextGaussian=false;
+			return nextNextGaussian;
+		}
+		
+		double v1,v2,s;
+		
+		do
+		{
+			v1=2*nextDouble()-1;
+			v2=2*nextDouble()-1;
+			s=v1*v1+v2*v2;
+		}
+		while(s>=1 || s==0);
+		
+		double multiplier=StrictMath.sqrt(-2*StrictMath.log(s)/s);
+		nextNextGaussian=v2*multiplier;
+		haveNextNextGaussian=true;
+		
+		return v1*multiplier;
+	}
+}
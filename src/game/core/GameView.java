@@ -20,7 +20,6 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.ArrayList;
 
 public final class GameView extends JComponent 
 {
@@ -28,9 +27,9 @@ public final class GameView extends JComponent
 
 	private int MAG=2;
 	private int pacManDir=G.INITIAL_PAC_DIR;
-	private static boolean isVisible=false;
 	
     private final _G_ game;
+    private final DebugOverlay overlay;
     private int width, height;
     private final BufferedImage[][] pacmanImgs=new BufferedImage[4][3];
     private final BufferedImage[][][] ghostsImgs=new BufferedImage[6][4][2];
@@ -43,15 +42,15 @@ public final class GameView extends JComponent
     private Scale2x scale2x;
     private Font font, smallFont;
 
-    public static GameView lastInstance;
+    public static volatile GameView lastInstance;
 
     private static final int TOP_BORDER = 20;
     
     public GameView(_G_ game, int scale)
     {
-    	lastInstance = this;
-    	
         this.game=game;
+        this.overlay=new DebugOverlay();
+        game.debugOverlay=overlay;	//shared with all copies of the game made from now on
 
         width = game.getWidth() * MAG;
         height = TOP_BORDER + game.getHeight() * MAG + 20;
@@ -64,8 +63,6 @@ public final class GameView extends JComponent
         font = new Font(Font.MONOSPACED, Font.PLAIN, 11);
         smallFont = new Font(Font.MONOSPACED, Font.PLAIN, 8);
         
-        isVisible=true;
-        
         pacmanImgs[G.UP][0]=getImage("mspacman-up-normal.png");
         pacmanImgs[G.UP][1]=getImage("mspacman-up-open.png");
         pacmanImgs[G.UP][2]=getImage("mspacman-up-closed.png");
@@ -121,6 +118,8 @@ public final class GameView extends JComponent
         ghostsImgs[5][0][1]=getImage("edible-ghost-blink-2.png");       
         
         fruitImages = getImage("fruits.png");
+        
+        lastInstance = this;
     }
     
     public void paintComponent(Graphics g) 
@@ -341,11 +340,26 @@ public final class GameView extends JComponent
     ////////////////////////////////////////
     
     //for debugging/illustration purposes only: draw colors in the maze to check whether controller is working
-    //correctly or not; can draw squares and lines (see NearestPillPacManVS for demonstration).
-    public static ArrayList<DebugPointer> debugPointers=new ArrayList<DebugPointer>();
-    public static ArrayList<DebugLine> debugLines=new ArrayList<DebugLine>();
-    public static ArrayList<DebugText> debugTexts=new ArrayList<DebugText>();
-
+    //correctly or not; can draw squares and lines (see NearestPillPacManVS for demonstration). Everything is
+    //drawn over the view of the game passed in (see DebugOverlay); for games that are not visualized, nothing
+    //is recorded and the methods return immediately.
+    
+    //Returns the overlay of the game, or null if the game is not visualized
+    private static DebugOverlay overlayOf(Game game)
+    {
+    	return game instanceof G ? ((G)game).debugOverlay : null;
+    }
+    
+    /**
+     * Whether anything added for the game will be drawn, i.e., whether the game is visualized. Controllers may
+     * use this to skip computing what they would only draw.
+     * 
+     * @param game
+     */
+    public static boolean isDebugging(Game game)
+    {
+    	return overlayOf(game) != null;
+    }
     
     /**
      * Add points of certain colors to node indices (highlights certain nodes)
@@ -358,11 +372,12 @@ public final class GameView extends JComponent
      * @param color
      * @param nodeIndices
      */
-    public synchronized static void addPoints(Game game,Color color,int... nodeIndices)
+    public static void addPoints(Game game,Color color,int... nodeIndices)
     {
-    	if(isVisible)
+    	DebugOverlay overlay=overlayOf(game);
+    	if(overlay!=null)
     		for(int i=0;i<nodeIndices.length;i++)
-    			debugPointers.add(new DebugPointer(game.getX(nodeIndices[i]),game.getY(nodeIndices[i]),color));    	
+    			overlay.addPoint(game.getX(nodeIndices[i]),game.getY(nodeIndices[i]),color);    	
     }
 
     /**
@@ -377,11 +392,12 @@ public final class GameView extends JComponent
      * @param fromNnodeIndices
      * @param toNodeIndices
      */
-    public synchronized static void addLines(Game game, Color color, int[] fromNnodeIndices,int[] toNodeIndices)
+    public static void addLines(Game game, Color color, int[] fromNnodeIndices,int[] toNodeIndices)
     {
-    	if(isVisible)
+    	DebugOverlay overlay=overlayOf(game);
+    	if(overlay!=null)
     		for(int i=0;i<fromNnodeIndices.length;i++)
-    			debugLines.add(new DebugLine(game.getX(fromNnodeIndices[i]),game.getY(fromNnodeIndices[i]),game.getX(toNodeIndices[i]),game.getY(toNodeIndices[i]),color));    	
+    			overlay.addLine(game.getX(fromNnodeIndices[i]),game.getY(fromNnodeIndices[i]),game.getX(toNodeIndices[i]),game.getY(toNodeIndices[i]),color);    	
     }
     
     /**
@@ -396,10 +412,11 @@ public final class GameView extends JComponent
      * @param fromNnodeIndex
      * @param toNodeIndex
      */
-    public synchronized static void addLines(Game game,Color color,int fromNnodeIndex,int toNodeIndex)
+    public static void addLines(Game game,Color color,int fromNnodeIndex,int toNodeIndex)
     {
-    	if(isVisible)
-    		debugLines.add(new DebugLine(game.getX(fromNnodeIndex),game.getY(fromNnodeIndex),game.getX(toNodeIndex),game.getY(toNodeIndex),color));    	
+    	DebugOverlay overlay=overlayOf(game);
+    	if(overlay!=null)
+    		overlay.addLine(game.getX(fromNnodeIndex),game.getY(fromNnodeIndex),game.getX(toNodeIndex),game.getY(toNodeIndex),color);    	
     }
     
     /**
@@ -414,7 +431,10 @@ public final class GameView extends JComponent
      * @param fromNnodeIndex
      * @param toNodeIndex
      */
-    public synchronized static void addLinesPath(Game game, Color color, int fromNodeIndex, int toNodeIndex) {
+    public static void addLinesPath(Game game, Color color, int fromNodeIndex, int toNodeIndex) {
+    	if (!isDebugging(game))
+    		return;
+    	
     	int fromX = game.getX(fromNodeIndex);
 		int fromY = game.getY(fromNodeIndex);
 		int toX = game.getX(toNodeIndex);
@@ -450,19 +470,32 @@ public final class GameView extends JComponent
      * @param toX
      * @param toY
      */
-    public synchronized static void addLines(Game game, Color color, int fromX, int fromY, int toX, int toY){
-    	if (isVisible) 
-    		debugLines.add(new DebugLine(fromX,fromY,toX,toY,color));    	
+    public static void addLines(Game game, Color color, int fromX, int fromY, int toX, int toY){
+    	DebugOverlay overlay=overlayOf(game);
+    	if (overlay != null) 
+    		overlay.addLine(fromX,fromY,toX,toY,color);    	
     }
     
-    public synchronized static void addText(int x, int y, Color color, String text) {
-    	if (isVisible)
-    		debugTexts.add(new DebugText(x, y, color, text));
+    /**
+     * Adds text to the view opened last (there is no game to tell which one); prefer the variant taking the game.
+     */
+    public static void addText(int x, int y, Color color, String text) {
+    	GameView view = lastInstance;
+    	if (view != null)
+    		addText(view.game, x, y, color, text);
     }
     
-    public synchronized static void addText(Game game, int nodeIndex, Color color, String text) {
-    	if (isVisible)
-    		debugTexts.add(new DebugText(game.getX(nodeIndex), game.getY(nodeIndex), color, text));
+    public static void addText(Game game, int nodeIndex, Color color, String text) {
+    	DebugOverlay overlay=overlayOf(game);
+    	if (overlay != null)
+    		overlay.addText(game.getX(nodeIndex), game.getY(nodeIndex), color, text);
+    }
+    
+    //Adds text at the position given in maze coordinates
+    private static void addText(Game game, int x, int y, Color color, String text) {
+    	DebugOverlay overlay=overlayOf(game);
+    	if (overlay != null)
+    		overlay.addText(x, y, color, text);
     }
         
     /**
@@ -470,75 +503,7 @@ public final class GameView extends JComponent
      */
     private void drawDebugInfo()
     {
-    	for(int i=0;i<debugPointers.size();i++)
-    	{
-    		DebugPointer dp=debugPointers.get(i);
-            if(dp == null) continue;
-    		bufferGraphics.setColor(dp.color);
-    		bufferGraphics.fillRect(dp.x*MAG+1,dp.y*MAG+5,10,10);
-    	}
-    	
-    	for(int i=0;i<debugLines.size();i++)
-    	{
-            DebugLine dl=debugLines.get(i);
-            if(dl == null) continue;
-    		bufferGraphics.setColor(dl.color);
-    		bufferGraphics.drawLine(dl.x1*MAG+5,dl.y1*MAG+10,dl.x2*MAG+5,dl.y2*MAG+10);
-    	}
-    	
-    	for (int i = 0; i < debugTexts.size(); ++i) {
-    		DebugText dt = debugTexts.get(i);
-            if(dt == null) continue;
-    		bufferGraphics.setColor(dt.color);    		
-    		bufferGraphics.drawString(dt.text, dt.x*MAG+5, dt.y*MAG+10);
-    	}
-    	
-    	debugPointers.clear();
-    	debugLines.clear();
-    	debugTexts.clear();
-    }
-    
-    private static class DebugPointer
-    {
-    	public int x,y;
-    	public Color color;
-    	
-    	public DebugPointer(int x,int y,Color color)
-    	{
-    		this.x=x;
-    		this.y=y;
-    		this.color=color;
-    	}
-    }
-    
-    private static class DebugLine
-    {
-    	public int x1,y1,x2,y2;
-    	public Color color;
-    	
-    	public DebugLine(int x1,int y1,int x2,int y2,Color color)
-    	{
-    		this.x1=x1;
-    		this.y1=y1;
-    		this.x2=x2;
-    		this.y2=y2;
-    		this.color=color;
-    	}
-    }
-    
-    private static class DebugText
-    {
-    	public int x,y;
-    	public Color color;
-    	public String text;
-    	
-    	public DebugText(int x,int y,Color color, String text)
-    	{
-    		this.x=x;
-    		this.y=y;
-    		this.color=color;
-    		this.text = text;
-    	}
+    	overlay.draw(bufferGraphics, MAG);
     }
     
 }	
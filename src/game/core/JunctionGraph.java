@@ -0,0 +1,195 @@
+package game.core;
+
+import java.util.Arrays;
+
+/*
+ * A corridor-compressed view of a maze: its nodes are the junctions of the maze (the nodes with more than two
+ * neighbours, i.e., the only places where Ms Pac-Man has a real decision to make) and its edges are the corridors
+ * between them. Each maze has exactly one such graph; it is immutable and obtained from Game.getJunctionGraph().
+ *
+ * The junctions are numbered 0..getNumJunctions()-1 in the order of Game.getJunctionIndices(). An edge leaves a
+ * junction in one of the directions [up,right,down,left] and is identified by 4*junction+direction; an edge that
+ * does not exist (no neighbour in that direction) has length 0. The nodes of an edge are those visited when
+ * following the corridor, excluding the junction it starts at and including the junction it ends at.
+ *
+ * The pills on an edge are given as a bitmask over the pill indices (see Game.getPillIndex(-)), in words of 64
+ * bits; the power pills fit into a single word.
+ */
+public final class JunctionGraph
+{
+	private final int numJunctions;
+	private final int[] junctions;			//node index of each junction
+	private final int[] junctionOf;			//junction number of each node (-1 if not a junction)
+
+	//edges, indexed by 4*junction+direction
+	private final int[][] edgeNodes;
+	private final int[] edgeEnd,edgeEndDir;
+
+	private final int pillWords;
+	private final long[] edgePills;			//pillWords words per edge
+	private final long[] edgePowerPills;
+
+	JunctionGraph(Maze maze)
+	{
+		this.numJunctions=maze.junctionIndices.length;
+		this.junctions=maze.junctionIndices.clone();
+		this.junctionOf=new int[maze.numNodes];
+
+		Arrays.fill(junctionOf,-1);
+
+		for(int i=0;i<numJunctions;i++)
+			junctionOf[junctions[i]]=i;
+
+		this.edgeNodes=new int[4*numJunctions][];
+		this.edgeEnd=new int[4*numJunctions];
+		this.edgeEndDir=new int[4*numJunctions];
+
+		this.pillWords=(maze.pillIndices.length+63)/64;
+		this.edgePills=new long[4*numJunctions*pillWords];
+		this.edgePowerPills=new long[4*numJunctions];
+
+		int[] nodes=new int[maze.numNodes];
+
+		for(int junction=0;junction<numJunctions;junction++)
+			for(int dir=0;dir<4;dir++)
+			{
+				int edge=4*junction+dir;
+				int node=junctions[junction];
+				int lastDir=dir;
+				int length=0;
+
+				edgeEnd[edge]=-1;
+				edgeEndDir[edge]=-1;
+
+				if(maze.neighbours[4*node+dir]==-1)
+				{
+					edgeNodes[edge]=new int[0];
+					continue;
+				}
+
+				//follow the corridor until the next junction; corridor nodes have exactly one way forward
+				while(true)
+				{
+					node=maze.neighbours[4*node+lastDir];
+					nodes[length++]=node;
+
+					if(maze.pillIndex[node]>=0)
+						edgePills[edge*pillWords+(maze.pillIndex[node]>>>6)]|=1L<<maze.pillIndex[node];
+
+					if(maze.powerPillIndex[node]>=0)
+						edgePowerPills[edge]|=1L<<maze.powerPillIndex[node];
+
+					if(junctionOf[node]>=0)
+						break;
+
+					if(length==maze.numNodes)
+						throw new IllegalStateException("Corridor without a junction in maze "+maze.name);
+
+					lastDir=forward(maze,node,lastDir);
+				}
+
+				edgeNodes[edge]=Arrays.copyOf(nodes,length);
+				edgeEnd[edge]=node;
+				edgeEndDir[edge]=lastDir;
+			}
+	}
+
+	//Returns the only direction out of a corridor node other than going back
+	static int forward(Maze maze,int node,int lastDir)
+	{
+		for(int i=0;i<4;i++)
+			if(i!=(lastDir+2)%4 && maze.neighbours[4*node+i]!=-1)
+				return i;
+
+		return -1;
+	}
+
+	//Returns the number of junctions
+	public int getNumJunctions()
+	{
+		return numJunctions;
+	}
+
+	//Returns the node index of the junction specified
+	public int getJunctionNode(int junction)
+	{
+		return junctions[junction];
+	}
+
+	//Returns the junction at the node specified, or -1 if the node is not a junction
+	public int getJunction(int nodeIndex)
+	{
+		return junctionOf[nodeIndex];
+	}
+
+	//Returns the edge leaving the junction at the node specified in the direction specified, or -1 if there is none
+	public int getEdge(int nodeIndex,int direction)
+	{
+		int junction=junctionOf[nodeIndex];
+
+		if(junction<0 || direction<0 || direction>3 || edgeEnd[4*junction+direction]<0)
+			return -1;
+
+		return 4*junction+direction;
+	}
+
+	//Returns the number of nodes on the edge, i.e., the number of moves needed to reach its end
+	public int getEdgeLength(int edge)
+	{
+		return edgeNodes[edge].length;
+	}
+
+	//Returns the node index of the junction the edge ends at
+	public int getEdgeEnd(int edge)
+	{
+		return edgeEnd[edge];
+	}
+
+	//Returns the direction of the last move along the edge, i.e., the direction one arrives at its end in
+	public int getEdgeEndDir(int edge)
+	{
+		return edgeEndDir[edge];
+	}
+
+	//Returns the i-th node on the edge
+	public int getEdgeNode(int edge,int i)
+	{
+		return edgeNodes[edge][i];
+	}
+
+	//Returns the nodes on the edge (a copy)
+	public int[] getEdgeNodes(int edge)
+	{
+		return edgeNodes[edge].clone();
+	}
+
+	//Returns the number of 64-bit words of the pill bitmasks
+	public int getPillWords()
+	{
+		return pillWords;
+	}
+
+	//Returns the word specified of the bitmask of the pills on the edge
+	public long getPillMask(int edge,int word)
+	{
+		return edgePills[edge*pillWords+word];
+	}
+
+	//Returns the bitmask of the power pills on the edge
+	public long getPowerPillMask(int edge)
+	{
+		return edgePowerPills[edge];
+	}
+
+	//Checks whether the pill specified lies on the edge
+	public boolean hasPill(int edge,int pillIndex)
+	{
+		return (edgePills[edge*pillWords+(pillIndex>>>6)]&(1L<<pillIndex))!=0;
+	}
+
+	//Checks whether the power pill specified lies on the edge
+	public boolean hasPowerPill(int edge,int powerPillIndex)
+	{
+		return (edgePowerPills[edge]&(1L<<powerPillIndex))!=0;
+	}
+}
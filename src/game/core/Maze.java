@@ -1,8 +1,22 @@
 package game.core;
 
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /*
  * Stores the actual mazes, each of which is simply a connected graph. The differences between the mazes are the connectivity
@@ -12,13 +26,41 @@ import java.io.InputStreamReader;
  */
 final class Maze
 {
-	private String[] nodeNames={"a","b","c","d"};
-	private String[] distNames={"da","db","dc","dd"};
+	static final String[] nodeNames={"a","b","c","d"};
+	static final String[] distNames={"da","db","dc","dd"};
+	
+	//Binary distance tables: a header (magic number, number of nodes) followed by the triangular distance
+	//matrix as 16-bit signed values, in the same order as the text files (see MazeDataCompiler)
+	static final String BINARY_SUFFIX=".bin";
+	static final int BINARY_MAGIC=0x4D504454;	//"MPDT"
+	static final int BINARY_HEADER=8;
+	
+	//The lazily built columns are published with release/acquire semantics, since the mazes are shared by all games
+	private static final VarHandle NEXT_HOPS=MethodHandles.arrayElementVarHandle(byte[][].class);
+	private static final VarHandle GHOST_DETOURS=MethodHandles.arrayElementVarHandle(short[][].class);
     
     //Information for the controllers
-    protected int[] distances,pillIndices,powerPillIndices,junctionIndices;				
+    protected int[] pillIndices,powerPillIndices,junctionIndices;				
+    
+    //Shortest path distances; these fit into 16 bits, which halves the size of the table (-1 marks unreachable nodes)
+    protected short[] distances;
+    
+    //First move on a shortest path, for every pair of nodes (nextHops[to][from]): the lowest 3 bits hold the
+    //best direction+1 (as chosen by G.getNextDir(-)) and the next 3 bits the best direction+1 among the
+    //others, which is where a ghost that may not reverse into the best direction goes instead (0 == none).
+    //A column is only built when a path to its node is first asked for (see nextHops(-))
+    protected byte[][] nextHops;
+    
+    //Length of the path a ghost takes to a node if it may not make the first move of nextHops (-1 if unreachable),
+    //indexed and built like nextHops. Otherwise the ghost simply follows a shortest path, so this is all that is needed
+    protected short[][] ghostDetours;
     
-    protected Node[] graph;			//The actual maze, stored as a graph (set of nodes)
+    protected JunctionGraph junctionGraph;	//corridor-compressed view of the maze
+    
+    //The actual maze, stored as a graph with its nodes held in flat arrays indexed by node index. The neighbours
+    //of node i are neighbours[4*i+d] for the directions d in [up,right,down,left]
+    protected int numNodes;
+    protected int[] x,y,pillIndex,powerPillIndex,numNeighbours,neighbours;
     
     //Maze-specific information
     protected int initialPacPosition,lairPosition,initialGhostsPosition,width,height;	
@@ -26,16 +68,203 @@ final class Maze
 	protected String name;			//Name of the Maze
 				
 	/*
-	 * Each maze is stored as a (connected) graph: all nodes have neighbours, stored in an array of length 4. The
-	 * index of the array associates the direction the neighbour is located at: '[up,right,down,left]'.
-	 * For instance, if node '9' has neighbours '[-1,12,-1,6]', you can reach node '12' by going right, and node
-	 * 6 by going left. The directions returned by the controllers should thus be in {0,1,2,3} and can be used
+	 * Each maze is stored as a (connected) graph: all nodes have neighbours, stored in 4 consecutive entries of
+	 * the neighbours array. The offset within these entries associates the direction the neighbour is located at:
+	 * '[up,right,down,left]'. For instance, if node '9' has neighbours '[-1,12,-1,6]', you can reach node '12' by
+	 * going right, and node 6 by going left. The directions returned by the controllers should thus be in {0,1,2,3} and can be used
 	 * directly to determine the next node to go to.
 	 */		
 	protected Maze(int index)
+	{
+		this(index,true);
+	}
+	
+	//The text tables are used if the binary ones are not wanted or cannot be loaded
+	Maze(int index,boolean binaryDistances)
 	{
 		loadNodes(nodeNames[index]);
-		loadDistances(distNames[index]);
+		
+		if(!binaryDistances || !loadBinaryDistances(distNames[index]+BINARY_SUFFIX))
+			loadDistances(distNames[index]);
+		
+		this.nextHops=new byte[numNodes][];
+		this.ghostDetours=new short[numNodes][];
+		
+		this.junctionGraph=new JunctionGraph(this);
+	}
+	
+	//Returns the shortest path distance between two nodes
+	int getDistance(int from,int to)
+	{
+		if(from==to)
+			return 0;		
+		else if(from<to)
+			return distances[((to*(to+1))/2)+from];
+		else
+			return distances[((from*(from+1))/2)+to];
+	}
+	
+	//Returns the direction of the first move on a shortest path from one node to another
+	int getNextDir(int from,int to)
+	{
+		return (nextHops(to)[from]&7)-1;
+	}
+	
+	//Returns the direction of the first move towards a node when the move in excludedDir is not allowed
+	//(for ghosts, which may not reverse); the same as G.getNextDir(-) with the corresponding neighbour removed
+	int getNextDir(int from,int excludedDir,int to)
+	{
+		int hops=nextHops(to)[from];
+		int best=(hops&7)-1;
+		
+		return best!=excludedDir ? best : ((hops>>3)&7)-1;
+	}
+	
+	//Returns the length of the path taken by a ghost (see G.getGhostPath(-)) that may not move in excludedDir
+	int getGhostDistance(int from,int excludedDir,int to)
+	{
+		if(from==to || numNeighbours[from]==0)
+			return 0;
+		
+		return (nextHops(to)[from]&7)-1!=excludedDir ? getDistance(from,to) : ghostDetours(to)[from];
+	}
+	
+	//Returns the column of nextHops for the given node, building it on first use. Two games may build the same
+	//column at the same time; both get the same values, so it does not matter whose column is kept
+	private byte[] nextHops(int to)
+	{
+		byte[] column=(byte[])NEXT_HOPS.getAcquire(nextHops,to);
+		
+		if(column==null)
+		{
+			column=computeNextHops(to);
+			NEXT_HOPS.setRelease(nextHops,to,column);
+		}
+		
+		return column;
+	}
+	
+	/*
+	 * Computes the first move on a shortest path to a node from all other nodes. Ties are broken exactly like in
+	 * G.getNextDir(-), i.e., in favour of the first direction in the order [up,right,down,left]. If the best
+	 * direction is excluded, the first of the remaining directions with the smallest distance is the one that
+	 * G.getNextDir(-) would choose, so a second direction per pair is enough to serve the ghosts as well.
+	 */
+	private byte[] computeNextHops(int to)
+	{
+		byte[] column=new byte[numNodes];
+		
+		for(int from=0;from<numNodes;from++)
+		{
+			int best=-1,second=-1;
+			int bestDist=Integer.MAX_VALUE,secondDist=Integer.MAX_VALUE;
+			
+			for(int i=0;i<4;i++)
+			{
+				int next=neighbours[4*from+i];
+				
+				if(next==-1)
+					continue;
+				
+				int dist=getDistance(next,to);
+				
+				if(dist<bestDist)
+				{
+					second=best;
+					secondDist=bestDist;
+					best=i;
+					bestDist=dist;
+				}
+				else if(dist<secondDist)
+				{
+					second=i;
+					secondDist=dist;
+				}
+			}
+			
+			column[from]=(byte)((best+1)|((second+1)<<3));
+		}
+		
+		return column;
+	}
+	
+	//Returns the column of ghostDetours for the given node, building it on first use (see nextHops(-))
+	private short[] ghostDetours(int to)
+	{
+		short[] column=(short[])GHOST_DETOURS.getAcquire(ghostDetours,to);
+		
+		if(column==null)
+		{
+			column=computeGhostDetours(to);
+			GHOST_DETOURS.setRelease(ghostDetours,to,column);
+		}
+		
+		return column;
+	}
+	
+	/*
+	 * Computes the ghost detours to a node from all other nodes. A ghost that may not take the best move takes the
+	 * second one and continues from the next node with the reverse of that move excluded: either it is on a shortest
+	 * path from there on, or it has to make another detour. The chain of detours is followed until its length is
+	 * known and the lengths of all nodes on the chain are filled in on the way back.
+	 */
+	private short[] computeGhostDetours(int to)
+	{
+		byte[] hops=nextHops(to);
+		short[] column=new short[numNodes];
+		Arrays.fill(column,Short.MIN_VALUE);	//not computed yet
+		
+		int[] chain=new int[numNodes];
+		
+		for(int from=0;from<numNodes;from++)
+		{
+			if(column[from]!=Short.MIN_VALUE)
+				continue;
+			
+			if(from==to || numNeighbours[from]==0 || getDistance(from,to)<0)
+			{
+				column[from]=(short)(from==to ? 0 : -1);
+				continue;
+			}
+			
+			int length=0;
+			int node=from;
+			int total;
+			
+			while(true)
+			{
+				if(length==numNodes)
+					throw new IllegalStateException("Ghosts cannot reach node "+to+" from node "+from+" in maze "+name);
+				
+				chain[length++]=node;
+				
+				int dir=((hops[node]>>3)&7)-1;
+				int next=neighbours[4*node+dir];
+				
+				if(next==to)
+				{
+					total=length;
+					break;
+				}
+				else if((hops[next]&7)-1!=(dir+2)%4)
+				{
+					total=length+getDistance(next,to);
+					break;
+				}
+				else if(column[next]!=Short.MIN_VALUE)
+				{
+					total=length+column[next];
+					break;
+				}
+				
+				node=next;
+			}
+			
+			for(int i=0;i<length;i++)
+				column[chain[i]]=(short)(total-i);
+		}
+		
+		return column;
 	}
 	
 	//Loads all the nodes from files and initialises all maze-specific information.
@@ -52,35 +281,53 @@ final class Maze
             this.initialPacPosition=Integer.parseInt(pr[1]);
             this.lairPosition=Integer.parseInt(pr[2]);
             this.initialGhostsPosition=Integer.parseInt(pr[3]);	            
-            this.graph=new Node[Integer.parseInt(pr[4])];	            
+            this.numNodes=Integer.parseInt(pr[4]);
             this.pillIndices=new int[Integer.parseInt(pr[5])];
             this.powerPillIndices=new int[Integer.parseInt(pr[6])];
             this.junctionIndices=new int[Integer.parseInt(pr[7])];
             this.width=Integer.parseInt(pr[8]);
             this.height=Integer.parseInt(pr[9]);
             
+            this.x=new int[numNodes];
+            this.y=new int[numNodes];
+            this.pillIndex=new int[numNodes];
+            this.powerPillIndex=new int[numNodes];
+            this.numNeighbours=new int[numNodes];
+            this.neighbours=new int[4*numNodes];
+            
             input=br.readLine();	
 
             int nodeIndex=0;
-        	int pillIndex=0;
-        	int powerPillIndex=0;	        	
-        	int junctionIndex=0;
+        	int pillCount=0;
+        	int powerPillCount=0;	        	
+        	int junctionCount=0;
 
             while(input!=null)
             {	
                 String[] nd=input.split("\t");    
-                Node node=new Node(nd[0],nd[1],nd[2],nd[7],nd[8],new String[]{nd[3],nd[4],nd[5],nd[6]});
                 
-                graph[nodeIndex++]=node;
+                x[nodeIndex]=Integer.parseInt(nd[1]);
+                y[nodeIndex]=Integer.parseInt(nd[2]);
+                pillIndex[nodeIndex]=Integer.parseInt(nd[7]);
+                powerPillIndex[nodeIndex]=Integer.parseInt(nd[8]);
                 
-                if(node.pillIndex>=0)
-                	pillIndices[pillIndex++]=node.nodeIndex;
-                else if(node.powerPillIndex>=0)
-                	powerPillIndices[powerPillIndex++]=node.nodeIndex;
+                for(int i=0;i<4;i++)
+                {
+                	neighbours[4*nodeIndex+i]=Integer.parseInt(nd[3+i]);
+                	
+                	if(neighbours[4*nodeIndex+i]!=-1)
+                		numNeighbours[nodeIndex]++;
+                }
                 
-                if(node.numNeighbours>2)
-                	junctionIndices[junctionIndex++]=node.nodeIndex;
+                if(pillIndex[nodeIndex]>=0)
+                	pillIndices[pillCount++]=nodeIndex;
+                else if(powerPillIndex[nodeIndex]>=0)
+                	powerPillIndices[powerPillCount++]=nodeIndex;
                 
+                if(numNeighbours[nodeIndex]>2)
+                	junctionIndices[junctionCount++]=nodeIndex;
+                
+                nodeIndex++;
                 input=br.readLine();
             }
         }
@@ -97,7 +344,7 @@ final class Maze
 	 */		
 	private void loadDistances(String fileName)
 	{
-		this.distances=new int[((graph.length*(graph.length-1))/2)+graph.length];
+		this.distances=new short[((numNodes*(numNodes-1))/2)+numNodes];
 		
         try
         {	        		        	
@@ -109,7 +356,7 @@ final class Maze
             
             while(input!=null)
             {	
-            	distances[index++]=Integer.parseInt(input);
+            	distances[index++]=Short.parseShort(input);
                 input=br.readLine();
             }
         }
@@ -118,4 +365,68 @@ final class Maze
             ioe.printStackTrace();
         }
 	}
+	
+	/*
+	 * Loads the pre-computed shortest path distances from the binary table. If the table is available as a file,
+	 * it is memory-mapped; otherwise (e.g., inside a jar) it is read in one go. Returns false if the table is
+	 * missing or does not match the maze, in which case the text table should be used instead.
+	 */
+	private boolean loadBinaryDistances(String fileName)
+	{
+		URL url=this.getClass().getResource("resources/data/"+fileName);
+		
+		if(url==null)
+			return false;
+		
+		try
+		{
+			ByteBuffer buffer;
+			
+			if("file".equals(url.getProtocol()))
+			{
+				try(FileChannel channel=FileChannel.open(Paths.get(url.toURI()),StandardOpenOption.READ))
+				{
+					buffer=channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+				}
+			}
+			else
+			{
+				try(InputStream is=url.openStream())
+				{
+					buffer=ByteBuffer.wrap(is.readAllBytes());
+				}
+			}
+			
+			int entries=((numNodes*(numNodes-1))/2)+numNodes;
+			
+			if(buffer.remaining()!=BINARY_HEADER+2*entries || buffer.getInt()!=BINARY_MAGIC || buffer.getInt()!=numNodes)
+			{
+				System.err.println("Distance table "+fileName+" does not match maze "+name+", using the text table");
+				return false;
+			}
+			
+			this.distances=new short[entries];
+			buffer.asShortBuffer().get(distances);
+			
+			return true;
+		}
+		catch(IOException | URISyntaxException e)
+		{
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	//Writes the distances in the binary format read by loadBinaryDistances(-)
+	void writeBinaryDistances(File file) throws IOException
+	{
+		try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(BINARY_MAGIC);
+			out.writeInt(numNodes);
+			
+			for(int i=0;i<distances.length;i++)
+				out.writeShort(distances[i]);
+		}
+	}
 }
@@ -0,0 +1,34 @@
+package game.core;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Generates the binary distance tables (da.bin, ..., dd.bin) from the text tables (da, ..., dd). The binary
+ * tables are loaded by Maze at start-up, which is much faster than parsing the text. Run this again whenever
+ * the text tables change:
+ * 
+ *   java -cp target/classes game.core.MazeDataCompiler src/game/core/resources/data
+ */
+public final class MazeDataCompiler
+{
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length!=1)
+		{
+			System.out.println("usage: MazeDataCompiler <output-directory>");
+			System.exit(1);
+		}
+		
+		File dir=new File(args[0]);
+		dir.mkdirs();
+		
+		for(int i=0;i<Game.NUM_MAZES;i++)
+		{
+			Maze maze=new Maze(i,false);
+			File file=new File(dir,Maze.distNames[i]+Maze.BINARY_SUFFIX);
+			maze.writeBinaryDistances(file);
+			System.out.println("Wrote "+file.getPath()+" ("+maze.numNodes+" nodes)");
+		}
+	}
+}
@@ -13,8 +13,6 @@
  */
 package game.core;
 
-import java.util.Random;
-
 import controllers.ghosts.IGhostsController;
 import game.GameConfig;
 
@@ -35,7 +33,7 @@ public class _G_ extends G
 		this.config = config;
 		this.remainingLevels = config.levelsToPlay;
 		
-		rnd = new Random(config.seed);
+		rnd = new GameRandom(config.seed, config.legacyRandom);
 
 		init();		//load mazes if not yet loaded
 
@@ -2,6 +2,12 @@ package tournament;
 
 import java.io.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import tournament.run.PacManResults;
 import tournament.run.PacManRunResult;
@@ -15,12 +21,22 @@ public class EvaluateAgent {
 	private SimulatorConfig config;
 	private int runCount;
 	private File resultDir;
+	private int threads;
 	
 	public EvaluateAgent(int seed, SimulatorConfig config, int runCount, File resultDir) {
+		this(seed, config, runCount, resultDir, 1);
+	}
+	
+	/**
+	 * @param threads how many games to play at the same time; each game has its own copy of the configuration
+	 *                and its own agent instance, so its result does not depend on this
+	 */
+	public EvaluateAgent(int seed, SimulatorConfig config, int runCount, File resultDir, int threads) {
 		this.seed = seed;
 		this.config = config;
 		this.runCount = runCount;
 		this.resultDir = resultDir;
+		this.threads = Math.max(1, threads);
 	}
 	
 	public PacManResults evaluateAgent(String agentId, String agentClass, boolean verbose) {
@@ -33,24 +49,35 @@ public class EvaluateAgent {
 		if (resultDir != null) {
             resultDir.mkdirs();
 		}
-		for (int i = 0; i < runCount; ++i) {
-            config.game.seed = seed + i;
-
-            // create new agent instance for each run
-            try {
-                config.pacManController =
-                    (IPacManController) Class.forName(agentClass).getConstructor().newInstance();
-            } catch (Exception e) { throw new RuntimeException(e); }
-        
-            Game info = PacManSimulator.play(config);
-            PacManRunResult result = new PacManRunResult(config.game.seed, info);
-            
-            if (verbose)
-                System.out.printf(
-                    "seed %2d: reached level %d, score = %5d\n",
-                    config.game.seed, info.getCurLevel(), info.getScore());
-                
-			results.addRunResults(result);
+		if (threads == 1) {
+			for (int i = 0; i < runCount; ++i) {
+				PacManRunResult result = runGame(seed + i, agentClass);
+				report(result, verbose);
+				results.addRunResults(result);
+			}
+		} else {
+			ExecutorService executor =
+				config.virtualThreads
+					? Executors.newFixedThreadPool(Math.min(threads, runCount), Thread.ofVirtual().factory())
+					: Executors.newFixedThreadPool(Math.min(threads, runCount));
+			try {
+				List<Future<PacManRunResult>> runs = new ArrayList<Future<PacManRunResult>>(runCount);
+				for (int i = 0; i < runCount; ++i) {
+					final int runSeed = seed + i;
+					runs.add(executor.submit(() -> runGame(runSeed, agentClass)));
+				}
+				
+				// collect in seed order, whatever order the games finish in
+				for (Future<PacManRunResult> run : runs) {
+					PacManRunResult result = run.get();
+					report(result, verbose);
+					results.addRunResults(result);
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			} finally {
+				executor.shutdownNow();
+			}
 		}
 		
 		System.out.println(results);
@@ -61,6 +88,29 @@ public class EvaluateAgent {
 		return results;
 	}
 
+	private PacManRunResult runGame(int runSeed, String agentClass) {
+		// own configuration and ghosts for each run, so that runs do not share any state
+		SimulatorConfig runConfig = config.clone();
+		runConfig.game.seed = runSeed;
+
+		// create new agent instance for each run
+		try {
+			runConfig.pacManController =
+				(IPacManController) Class.forName(agentClass).getConstructor().newInstance();
+		} catch (Exception e) { throw new RuntimeException(e); }
+		
+		PacManSimulator simulator = new PacManSimulator();
+		Game info = simulator.run(runConfig);
+		return new PacManRunResult(runSeed, info, simulator);
+	}
+	
+	private void report(PacManRunResult result, boolean verbose) {
+		if (verbose)
+			System.out.printf(
+				"seed %2d: reached level %d, score = %5d\n",
+				result.getSeed(), result.getInfo().getCurLevel(), result.getInfo().getScore());
+	}
+
 	private void outputResults(String agentId, PacManResults results) {		
 		resultDir.mkdirs();
 		
@@ -69,13 +119,14 @@ public class EvaluateAgent {
 	}
 	
 	private void outputRuns(String agentId, PacManResults results) {
-		File file = new File(resultDir, "games.csv");
+		String header = "datetime;agentId;" + results.getRunResults().get(0).getCSVHeader();
+		File file = csvFile("games", header);
 		System.out.println("Writing games into " + file.getPath());
         
         boolean outputHeaders = !file.exists();
 		try (PrintWriter writer = new PrintWriter(new FileOutputStream(file, true))) {
             if (outputHeaders)
-                writer.println("datetime;agentId;" + results.getRunResults().get(0).getCSVHeader());
+                writer.println(header);
                 
 			for (PacManRunResult run : results.getRunResults()) {
 				writer.println(run.dateTime + ";" + agentId + ";" + run.getCSV());				
@@ -86,13 +137,14 @@ public class EvaluateAgent {
 	}
 	
 	private void outputAverages(String agentId, PacManResults results) {
-		File file = new File(resultDir, "averages.csv");		
+		String header = "datetime;agentId;configSeed;" + results.getCSVHeader();
+		File file = csvFile("averages", header);		
 		System.out.println("Writing averages into " + file.getPath());
 		
         boolean outputHeaders = !file.exists();
 		try (PrintWriter writer = new PrintWriter(new FileOutputStream(file, true))) {
 			if (outputHeaders)
-                writer.println("datetime;agentId;configSeed;" + results.getCSVHeader());
+                writer.println(header);
                 
 			writer.print(LocalDateTime.now() + ";" + agentId + ";");
 			writer.print(seed + ";");
@@ -101,5 +153,24 @@ public class EvaluateAgent {
 			throw new RuntimeException("Failed to write results into: " + file.getPath());
 		}
 	}
+	
+	/**
+	 * The file to append rows with the given header to: the first of name.csv, name-v2.csv, name-v3.csv, ... that
+	 * does not exist yet or starts with the same header, so that rows never end up under the header of an older format.
+	 */
+	private File csvFile(String name, String header) {
+		for (int version = 1; ; ++version) {
+			File file = new File(resultDir, version == 1 ? name + ".csv" : name + "-v" + version + ".csv");
+			if (!file.exists())
+				return file;
+			
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				if (header.equals(reader.readLine()))
+					return file;
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to read the header of " + file.getPath());
+			}
+		}
+	}
 
 }
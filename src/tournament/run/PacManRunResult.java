@@ -1,28 +1,79 @@
 package tournament.run;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 
+import game.ControllerTiming;
+import game.LatencyHistogram;
+import game.PacManSimulator;
 import game.core.Game;
 
 public class PacManRunResult {
     public LocalDateTime dateTime;
     private int seed;	
     private Game info;
+    
+    // think-time statistics; null if the result was not created from a simulator
+    private ControllerTiming pacManTiming, ghostsTiming;
+    private int suspendedFrames;
+    private long suspendedNanos;
 		
 	public PacManRunResult(int seed, Game info) {
         dateTime = LocalDateTime.now();
         this.seed = seed;
         this.info = info;
     }
+	
+	/**
+	 * Result of the game last run by the simulator, including its think-time statistics.
+	 */
+	public PacManRunResult(int seed, Game info, PacManSimulator simulator) {
+		this(seed, info);
+		this.pacManTiming = simulator.getPacManTiming();
+		this.ghostsTiming = simulator.getGhostsTiming();
+		this.suspendedFrames = simulator.getSuspendedFrames();
+		this.suspendedNanos = simulator.getSuspendedNanos();
+	}
+    
+    public int getSeed() { return seed; }
     
     public Game getInfo() { return info; }
+    
+    public ControllerTiming getPacManTiming() { return pacManTiming; }
+    
+    public ControllerTiming getGhostsTiming() { return ghostsTiming; }
+    
+    public int getSuspendedFrames() { return suspendedFrames; }
+    
+    public long getSuspendedNanos() { return suspendedNanos; }
 	
 	public String getCSVHeader() {
-		return "seed;levelReached;score;timeSpent";
+		return "seed;levelReached;score;timeSpent;" +
+		       timingHeader("pacMan") + ";" + timingHeader("ghosts") + ";suspendedFrames;suspendedMs";
 	}
 	
 	public String getCSV() {
-        return seed + ";" + info.getCurLevel() + ";" + info.getScore() + ";" + info.getTotalTime();
+        return seed + ";" + info.getCurLevel() + ";" + info.getScore() + ";" + info.getTotalTime() + ";" +
+               timingCSV(pacManTiming) + ";" + timingCSV(ghostsTiming) + ";" +
+               (pacManTiming == null ? ";" : suspendedFrames + ";" + millis(suspendedNanos));
+	}
+	
+	private static String timingHeader(String controller) {
+		return controller + "P50Ms;" + controller + "P90Ms;" + controller + "P99Ms;" + controller + "MaxMs;" +
+		       controller + "DeadlineMisses";
+	}
+	
+	private static String timingCSV(ControllerTiming timing) {
+		if (timing == null) return ";;;;";
+		
+		LatencyHistogram latencies = timing.getLatencies();
+		return millis(latencies.getPercentile(0.5)) + ";" + millis(latencies.getPercentile(0.9)) + ";" +
+		       millis(latencies.getPercentile(0.99)) + ";" + millis(latencies.getMax()) + ";" +
+		       timing.getDeadlineMisses();
+	}
+	
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
 	}
 	
 }